@@ -0,0 +1,61 @@
+package ru.sherb.actors;
+
+import ru.sherb.printer.ISOPaperSizes;
+import ru.sherb.printer.Printable;
+import ru.sherb.printer.Printer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Documents and printers shared by the benchmarks.
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    static Printable document(String name) {
+        return new StoredDocument(name, ISOPaperSizes.A4, Duration.ofMillis(name.length()), 0);
+    }
+
+    static List<Printable> documents(int count) {
+        var result = new ArrayList<Printable>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(document("document-" + i));
+        }
+        return result;
+    }
+
+    /**
+     * Prints in no time, so only the dispatcher and the printer actors are measured.
+     */
+    static Printer instantPrinter() {
+        return new Printer() {
+            @Override
+            public void print(Printable document) { }
+
+            @Override
+            public void stop() { }
+        };
+    }
+
+    /**
+     * Prints nothing until the latch is released, documents stay in the queue.
+     */
+    static Printer blockedPrinter(CountDownLatch release) {
+        return new Printer() {
+            @Override
+            public void print(Printable document) throws InterruptedException {
+                release.await();
+            }
+
+            @Override
+            public void stop() {
+                release.countDown();
+            }
+        };
+    }
+}
@@ -0,0 +1,80 @@
+package ru.sherb.actors;
+
+import akka.actor.ExtendedActorSystem;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.javadsl.Adapter;
+import akka.actor.typed.javadsl.Behaviors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sherb.printer.Printable;
+
+import java.io.NotSerializableException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary forms of documents: the {@link PrintableCodec} shared with the journal, and the round trip of
+ * dispatcher messages through the {@link PrintDispatcherSerializer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecBenchmark {
+
+    private ActorSystem<Void> system;
+    private PrintDispatcherSerializer serializer;
+
+    private Printable document;
+    private ByteBuffer buffer;
+    private PrintDispatcherImpl.AddToPrint addToPrint;
+    private PrintDispatcherImpl.PrintedDocuments page;
+
+    @Setup(Level.Trial)
+    public void start() {
+        system = ActorSystem.create(Behaviors.empty(), "benchmark");
+        serializer = new PrintDispatcherSerializer((ExtendedActorSystem) Adapter.toClassic(system));
+
+        document = BenchmarkSupport.document("quarterly report, final version (2).pdf");
+        buffer = ByteBuffer.allocate(PrintableCodec.encodedLength(document));
+        addToPrint = new PrintDispatcherImpl.AddToPrint(PrintDispatcherImpl.NO_ID, document, null, null);
+        page = new PrintDispatcherImpl.PrintedDocuments(List.copyOf(BenchmarkSupport.documents(100)));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        system.terminate();
+        system.getWhenTerminated().toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public Printable documentRoundTrip() {
+        buffer.clear();
+        PrintableCodec.encode(buffer, document);
+        buffer.flip();
+        return PrintableCodec.decode(buffer);
+    }
+
+    @Benchmark
+    public Object addToPrintRoundTrip() throws NotSerializableException {
+        return serializer.fromBinary(serializer.toBinary(addToPrint), serializer.manifest(addToPrint));
+    }
+
+    @Benchmark
+    public Object pageOf100RoundTrip() throws NotSerializableException {
+        return serializer.fromBinary(serializer.toBinary(page), serializer.manifest(page));
+    }
+}
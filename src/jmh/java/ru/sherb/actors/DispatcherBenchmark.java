@@ -0,0 +1,101 @@
+package ru.sherb.actors;
+
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.javadsl.AskPattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sherb.printer.PrintResult;
+import ru.sherb.printer.Printable;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submission of documents to a dispatcher with an instant printer: the throughput of single and batch
+ * {@code addToPrint}, and the latency from the submission to the {@link PrintResult} that is sent after
+ * the printer reports the print complete.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DispatcherBenchmark {
+
+    private static final int BATCH = 1000;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private ActorSystem<PrintDispatcherImpl.Command> system;
+    private AsyncPrintDispatchActorFacade dispatcher;
+    private List<Printable> batch;
+    private Printable document;
+
+    @Setup(Level.Trial)
+    public void start() {
+        var settings = PrintDispatcherSettings.defaults()
+                .withHistoryRetention(HistoryRetention.maxCount(BATCH))
+                .withAskTimeout(TIMEOUT);
+        system = ActorSystem.create(PrintDispatcherImpl.create(List.of(BenchmarkSupport.instantPrinter()), settings),
+                "dispatcher");
+        dispatcher = new AsyncPrintDispatchActorFacade(system, system.scheduler(), settings, null);
+        batch = BenchmarkSupport.documents(BATCH);
+        document = batch.get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        system.terminate();
+        system.getWhenTerminated().toCompletableFuture().join();
+    }
+
+    /**
+     * Documents are submitted one by one and the queue is drained before the next invocation, so the
+     * backlog never grows beyond a batch.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void addToPrint() {
+        for (Printable document : batch) {
+            dispatcher.addToPrint(document);
+        }
+        dispatcher.allComplete(TIMEOUT).toCompletableFuture().join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH)
+    public void addAllToPrint() {
+        dispatcher.addToPrint(batch);
+        dispatcher.allComplete(TIMEOUT).toCompletableFuture().join();
+    }
+
+    /**
+     * Enqueue, the waiting, queued, in progress and complete events of the printer, and the result.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public PrintResult endToEndLatency() {
+        return AskPattern.<PrintDispatcherImpl.Command, PrintResult>ask(
+                system,
+                resultTo -> new PrintDispatcherImpl.AddToPrint(PrintDispatcherImpl.NO_ID, document, null, resultTo),
+                TIMEOUT,
+                system.scheduler())
+                .toCompletableFuture()
+                .join();
+    }
+}
@@ -0,0 +1,148 @@
+package ru.sherb.actors;
+
+import akka.Done;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.Behavior;
+import akka.actor.typed.javadsl.AskPattern;
+import akka.actor.typed.javadsl.Behaviors;
+import lombok.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Print events of a document on their way from the printer to the dispatcher: through one message adapter
+ * of the dispatcher, as they go now, or through a watcher actor spawned for every document and stopped after
+ * its last event, as they went before. The time is of one document in a batch of them, from the print
+ * request to its completion at the dispatcher; run with {@code -prof gc} for the allocation per document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventRelayBenchmark {
+
+    private static final int DOCUMENTS = 1000;
+
+    @Param({"adapter", "watcher"})
+    public String relay;
+
+    private ActorSystem<Command> system;
+
+    interface Command { }
+
+    @Value
+    static class PrintBatch implements Command {
+        int documents;
+        ActorRef<Done> replyTo;
+    }
+
+    @Value
+    static class Relayed implements Command {
+        PrinterImpl.PrintEvent event;
+    }
+
+    /**
+     * Stands for the printer actor, it reports every document as queued, started and printed at once.
+     */
+    @Value
+    static class Print {
+        ActorRef<PrinterImpl.PrintEvent> consumer;
+        long id;
+    }
+
+    @Setup(Level.Trial)
+    public void start() {
+        system = ActorSystem.create(dispatcher(relay.equals("adapter")), "relay");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        system.terminate();
+        system.getWhenTerminated().toCompletableFuture().join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public Done printBatch() {
+        return AskPattern.<Command, Done>ask(
+                system, replyTo -> new PrintBatch(DOCUMENTS, replyTo), Duration.ofSeconds(30), system.scheduler()
+        ).toCompletableFuture().join();
+    }
+
+    private static Behavior<Command> dispatcher(boolean adapter) {
+        return Behaviors.setup(context -> {
+            var printer = context.spawn(printer(), "printer");
+            ActorRef<PrinterImpl.PrintEvent> events = adapter
+                    ? context.messageAdapter(PrinterImpl.PrintEvent.class, Relayed::new)
+                    : null;
+            long[] nextId = {0};
+            int[] waiting = {0};
+            ActorRef<Done>[] replyTo = newReplyTo();
+
+            return Behaviors.receive(Command.class)
+                    .onMessage(PrintBatch.class, batch -> {
+                        waiting[0] = batch.documents;
+                        replyTo[0] = batch.replyTo;
+                        for (int i = 0; i < batch.documents; i++) {
+                            long id = nextId[0]++;
+                            var consumer = adapter
+                                    ? events
+                                    : context.spawn(watcher(context.getSelf()), "document-" + id + "-watcher");
+                            printer.tell(new Print(consumer, id));
+                        }
+                        return Behaviors.same();
+                    })
+                    .onMessage(Relayed.class, relayed -> {
+                        if (relayed.event instanceof PrinterImpl.PrintComplete && --waiting[0] == 0) {
+                            replyTo[0].tell(Done.getInstance());
+                        }
+                        return Behaviors.same();
+                    })
+                    .build();
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ActorRef<Done>[] newReplyTo() {
+        return (ActorRef<Done>[]) new ActorRef<?>[1];
+    }
+
+    private static Behavior<Print> printer() {
+        return Behaviors.receive(Print.class)
+                .onMessage(Print.class, print -> {
+                    long now = System.nanoTime();
+                    print.consumer.tell(new PrinterImpl.DocumentAddedToQueue(print.id, now));
+                    print.consumer.tell(new PrinterImpl.PrintStarting(print.id, now));
+                    print.consumer.tell(new PrinterImpl.PrintComplete(print.id, now));
+                    return Behaviors.same();
+                })
+                .build();
+    }
+
+    private static Behavior<PrinterImpl.PrintEvent> watcher(ActorRef<Command> dispatcher) {
+        return Behaviors.receive(PrinterImpl.PrintEvent.class)
+                .onMessage(PrinterImpl.PrintEvent.class, event -> {
+                    dispatcher.tell(new Relayed(event));
+                    return event instanceof PrinterImpl.PrintComplete ? Behaviors.stopped() : Behaviors.same();
+                })
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package ru.sherb.actors;
+
+import akka.actor.typed.ActorSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sherb.printer.PrintStatistics;
+import ru.sherb.printer.PrintedOrder;
+import ru.sherb.printer.Printable;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries of the printed history through the dispatcher, including the round trip of the ask.
+ * The history is filled by printing in the setup, so the 1M run takes a while to start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HistoryBenchmark {
+
+    private static final int PAGE = 100;
+    private static final int CHUNK = 10_000;
+    private static final Comparator<Printable> BY_NAME_LENGTH = Comparator
+            .comparingInt((Printable d) -> d.name().length())
+            .thenComparing(Printable::name);
+
+    @Param({"1000", "100000", "1000000"})
+    public int historySize;
+
+    private ActorSystem<PrintDispatcherImpl.Command> system;
+    private PrintDispatchActorFacade dispatcher;
+
+    @Setup(Level.Trial)
+    public void fillHistory() {
+        var settings = PrintDispatcherSettings.defaults().withAskTimeout(Duration.ofMinutes(1));
+        system = ActorSystem.create(PrintDispatcherImpl.create(List.of(BenchmarkSupport.instantPrinter()), settings),
+                "dispatcher");
+        var async = new AsyncPrintDispatchActorFacade(system, system.scheduler(), settings, null);
+        dispatcher = new PrintDispatchActorFacade(async, system::terminate);
+
+        for (int printed = 0; printed < historySize; printed += CHUNK) {
+            var chunk = BenchmarkSupport.documents(Math.min(CHUNK, historySize - printed));
+            async.addToPrint(chunk);
+            async.allComplete(Duration.ofMinutes(1)).toCompletableFuture().join();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        dispatcher.stop();
+        system.getWhenTerminated().toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public List<Printable> listPrinted() {
+        return dispatcher.listPrinted();
+    }
+
+    @Benchmark
+    public List<Printable> listPrintedPageInCompletionOrder() {
+        return dispatcher.listPrinted(PrintedOrder.COMPLETION_TIME, historySize / 2, PAGE);
+    }
+
+    @Benchmark
+    public List<Printable> listPrintedPageByName() {
+        return dispatcher.listPrinted(PrintedOrder.NAME, historySize / 2, PAGE);
+    }
+
+    @Benchmark
+    public List<Printable> listPrintedPageByComparator() {
+        return dispatcher.listPrinted(BY_NAME_LENGTH, 0, PAGE);
+    }
+
+    @Benchmark
+    public Duration avgPrintedTime() {
+        return dispatcher.avgPrintedTime();
+    }
+
+    @Benchmark
+    public PrintStatistics stats() {
+        return dispatcher.stats();
+    }
+}
@@ -0,0 +1,86 @@
+package ru.sherb.actors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sherb.printer.Printable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Life of one job among {@code jobs} live ones: it is added, moves to the printer queue, starts printing
+ * and is removed, while the oldest jobs make room for it. The {@link JobTable} against the state maps
+ * of boxed ids it replaced, one {@link HashMap} a state.
+ * <p>
+ * The table gets the time of the transitions like from the dispatcher, a counter stands for it here, so the
+ * clock is not measured.
+ * <p>
+ * Run with {@code -prof gc}, the allocation rate of the maps is the boxing and the entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobTableBenchmark {
+
+    @Param({"1000", "100000"})
+    private int jobs;
+
+    private Printable document;
+
+    private JobTable table;
+
+    private Map<Long, Printable> inWaiting;
+    private Map<Long, Printable> inQueue;
+    private Map<Long, Printable> inProgress;
+
+    // the next job to add, the oldest live job is jobs before it
+    private long nextId;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        document = BenchmarkSupport.document("document");
+        table = new JobTable();
+        inWaiting = new HashMap<>();
+        inQueue = new HashMap<>();
+        inProgress = new HashMap<>();
+        for (nextId = 0; nextId < jobs; nextId++) {
+            table.put(nextId, document, 0, JobTable.WAITING, null, nextId);
+            inWaiting.put(nextId, document);
+        }
+    }
+
+    @Benchmark
+    public int jobTable() {
+        long oldest = nextId - jobs;
+        long now = nextId;
+        table.put(nextId++, document, 0, JobTable.WAITING, null, now);
+        table.move(oldest, JobTable.QUEUED, now);
+        table.move(oldest, JobTable.IN_PROGRESS, now);
+        table.remove(oldest, now);
+        return table.size();
+    }
+
+    @Benchmark
+    public int hashMaps() {
+        long oldest = nextId - jobs;
+        inWaiting.put(nextId++, document);
+        inQueue.put(oldest, inWaiting.remove(oldest));
+        inProgress.put(oldest, inQueue.remove(oldest));
+        inProgress.remove(oldest);
+        return inWaiting.size();
+    }
+}
@@ -0,0 +1,100 @@
+package ru.sherb.actors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sherb.printer.Printable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Recovery of a journal with many live jobs, and appending of a job lifecycle without forcing to the disk.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class JournalBenchmark {
+
+    @Param({"1000000"})
+    public int jobs;
+
+    private Path recovered;
+    private Path appended;
+    private JobJournal journal;
+    private Printable document;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void writeJournal() throws IOException {
+        recovered = Files.createTempDirectory("journal-recovery");
+        try (var writer = JobJournal.open(recovered)) {
+            var table = writer.jobs();
+            for (int id = 0; id < jobs; id++) {
+                var job = BenchmarkSupport.document("document-" + id);
+                table.put(id, job, 0, JobTable.WAITING);
+                writer.add(id, job);
+            }
+        }
+
+        appended = Files.createTempDirectory("journal-append");
+        journal = JobJournal.open(appended);
+        document = BenchmarkSupport.document("appended");
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        journal.close();
+        deleteRecursively(recovered);
+        deleteRecursively(appended);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public int recover() throws IOException {
+        try (var restored = JobJournal.open(recovered)) {
+            return restored.jobs().size();
+        }
+    }
+
+    /**
+     * Add, start and done records of one job, as the dispatcher writes them.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public void appendLifecycle() {
+        long id = nextId++;
+        var table = journal.jobs();
+        table.put(id, document, 0, JobTable.WAITING);
+        journal.add(id, document);
+        table.move(id, JobTable.IN_PROGRESS);
+        journal.started(id);
+        table.remove(id);
+        journal.done(id);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.sherb.actors;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sherb.printer.ISOPaperSizes;
+import ru.sherb.printer.PaperSize;
+import ru.sherb.printer.Printable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prints a random mix of A3 and A4 documents from one queue of the policy, with a changeover 30 times longer
+ * than a print. Besides the time to drain the queue, reports the changeovers, the simulated makespan in seconds
+ * and how far a document fell behind its arrival position.
+ * <p>
+ * The counters are summed over the measured iterations, so only one run is measured and they are of that run,
+ * keep {@code -i 1} when overriding the iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 1)
+@Fork(1)
+public class SchedulingBenchmark {
+
+    private static final Duration PRINT_TIME = Duration.ofSeconds(1);
+    private static final Duration CHANGEOVER_TIME = Duration.ofSeconds(30);
+
+    @Param({"fifo", "groupByPaperSize"})
+    public String policy;
+
+    @Param("1000")
+    public int documents;
+
+    private final List<Printable> mix = new ArrayList<>();
+    private PrintQueue queue;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcome {
+        public long changeovers;
+        public long makespanSeconds;
+        public long maxWaitingPosition;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            changeovers = 0;
+            makespanSeconds = 0;
+            maxWaitingPosition = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void generate() {
+        var random = new Random(42);
+        for (int i = 0; i < documents; i++) {
+            var size = random.nextBoolean() ? ISOPaperSizes.A3 : ISOPaperSizes.A4;
+            mix.add(new StoredDocument(String.valueOf(i), size, PRINT_TIME, 0));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void fill() {
+        queue = policy.equals("fifo")
+                ? SchedulingPolicy.fifo().newQueue()
+                : SchedulingPolicy.groupByPaperSize(50).newQueue();
+        for (int i = 0; i < mix.size(); i++) {
+            queue.add(new QueuedDocument(null, i, mix.get(i), 0));
+        }
+    }
+
+    @Benchmark
+    public Outcome printAll(Outcome outcome) {
+        var makespan = Duration.ZERO;
+        PaperSize loaded = null;
+        for (long position = 0; !queue.isEmpty(); position++) {
+            var next = queue.poll();
+            var size = next.document().size();
+            if (loaded != null && loaded != size) {
+                outcome.changeovers += 1;
+                makespan = makespan.plus(CHANGEOVER_TIME);
+            }
+            loaded = size;
+            makespan = makespan.plus(next.document().printDuration());
+            outcome.maxWaitingPosition = Math.max(outcome.maxWaitingPosition, position - next.id());
+        }
+        outcome.makespanSeconds = makespan.toSeconds();
+        return outcome;
+    }
+}
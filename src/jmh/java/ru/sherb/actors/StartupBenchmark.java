@@ -0,0 +1,95 @@
+package ru.sherb.actors;
+
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.javadsl.Behaviors;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Start of 100 facades, every one with its own actor system or all in a shared one. A facade is started when
+ * its dispatcher answers, the live threads of the JVM after the start are reported besides the time.
+ * <p>
+ * The counter is summed over the measured iterations, so every iteration adds its share of it, keep
+ * {@code -i 10} when overriding the iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = StartupBenchmark.ITERATIONS)
+@Fork(1)
+public class StartupBenchmark {
+
+    static final int ITERATIONS = 10;
+
+    private static final int FACADES = 100;
+
+    @Param({"standalone", "shared"})
+    public String systems;
+
+    private ActorSystem<Void> shared;
+    private final List<PrintDispatchActorFacade> facades = new ArrayList<>(FACADES);
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Threads {
+        public double liveThreads;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            liveThreads = 0;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void startSharedSystem() {
+        if (systems.equals("shared")) {
+            shared = ActorSystem.create(Behaviors.empty(), "shared");
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopAll() {
+        facades.forEach(PrintDispatchActorFacade::stop);
+        facades.clear();
+        if (shared != null) {
+            shared.terminate();
+            shared.getWhenTerminated().toCompletableFuture().join();
+            shared = null;
+        }
+    }
+
+    @Benchmark
+    public List<PrintDispatchActorFacade> start100Facades(Threads threads) {
+        var printers = List.of(BenchmarkSupport.instantPrinter());
+        var settings = PrintDispatcherSettings.defaults().withAskTimeout(Duration.ofSeconds(30));
+        for (int i = 0; i < FACADES; i++) {
+            facades.add(shared != null
+                    ? PrintDispatchActorFacade.start(shared, printers, settings)
+                    : PrintDispatchActorFacade.start(printers, settings));
+        }
+        for (PrintDispatchActorFacade facade : facades) {
+            facade.queueDepth();
+        }
+        threads.liveThreads = ManagementFactory.getThreadMXBean().getThreadCount() / (double) ITERATIONS;
+        return facades;
+    }
+}
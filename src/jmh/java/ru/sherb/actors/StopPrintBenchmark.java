@@ -0,0 +1,83 @@
+package ru.sherb.actors;
+
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.javadsl.Behaviors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sherb.printer.Printable;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code stopPrint} of a dispatcher whose printers are stuck and whose queue is full. Every measurement
+ * stops a fresh dispatcher, they are started in a shared actor system.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(1)
+public class StopPrintBenchmark {
+
+    @Param({"1000", "100000"})
+    public int queued;
+
+    @Param("4")
+    public int printers;
+
+    private ActorSystem<Void> system;
+    private List<Printable> documents;
+
+    private CountDownLatch release;
+    private PrintDispatchActorFacade dispatcher;
+
+    @Setup(Level.Trial)
+    public void startSystem() {
+        system = ActorSystem.create(Behaviors.empty(), "benchmark");
+        documents = BenchmarkSupport.documents(queued);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopSystem() {
+        system.terminate();
+        system.getWhenTerminated().toCompletableFuture().join();
+    }
+
+    @Setup(Level.Iteration)
+    public void fillQueue() {
+        release = new CountDownLatch(1);
+        var stuck = BenchmarkSupport.blockedPrinter(release);
+        var settings = PrintDispatcherSettings.defaults()
+                .withCapacity(queued)
+                .withAskTimeout(Duration.ofMinutes(1));
+        dispatcher = PrintDispatchActorFacade.start(system, Collections.nCopies(printers, stuck), settings);
+        dispatcher.addToPrint(documents);
+    }
+
+    @TearDown(Level.Iteration)
+    public void release() {
+        release.countDown();
+        dispatcher.stop();
+    }
+
+    @Benchmark
+    public List<Printable> stopPrint() {
+        return dispatcher.stopPrint();
+    }
+}
@@ -0,0 +1,119 @@
+package ru.sherb.actors;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.sherb.printer.Printable;
+import ru.sherb.printer.Printer;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A farm of slow network printers, every one of them prints a document at once, on a platform thread per
+ * printer and on a virtual thread per print. The virtual threads mode needs JDK 21, run it with
+ * {@code -PjmhJdk=21}.
+ * <p>
+ * Besides the time, reports the peak threads of the JVM, the peak printing threads of the executor and its
+ * longest scheduling latency. The counters are summed over the measured iterations, so every iteration adds
+ * its share of them, keep {@code -i 5} when overriding the iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = VirtualThreadsBenchmark.ITERATIONS, time = 2)
+@Fork(1)
+public class VirtualThreadsBenchmark {
+
+    static final int ITERATIONS = 5;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param("1000")
+    public int printers;
+
+    @Param("20")
+    public int printMillis;
+
+    private PrintDispatchActorFacade dispatcher;
+    private List<Printable> batch;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Threads {
+        public double peakThreads;
+        public double peakBusyThreads;
+        public double maxSchedulingLatencyMicros;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+            peakThreads = 0;
+            peakBusyThreads = 0;
+            maxSchedulingLatencyMicros = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void sample(VirtualThreadsBenchmark benchmark) {
+            var stats = benchmark.dispatcher.executorStats();
+            peakThreads = ManagementFactory.getThreadMXBean().getPeakThreadCount() / (double) ITERATIONS;
+            peakBusyThreads = stats.getPeakBusyThreads() / (double) ITERATIONS;
+            maxSchedulingLatencyMicros = stats.getMaxSchedulingLatency().toNanos() / 1000.0 / ITERATIONS;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void start() {
+        var executor = threads.equals("virtual")
+                ? PrinterExecutor.virtualThreads()
+                : PrinterExecutor.threadPerPrinter();
+        Printer slowPrinter = new Printer() {
+            @Override
+            public void print(Printable document) throws InterruptedException {
+                Thread.sleep(printMillis);
+            }
+
+            @Override
+            public void stop() { }
+        };
+        dispatcher = PrintDispatchActorFacade.start(
+                Collections.nCopies(printers, slowPrinter),
+                PrintDispatcherSettings.defaults()
+                        .withPrinterExecutor(executor)
+                        .withHistoryRetention(HistoryRetention.maxCount(printers))
+                        .withAskTimeout(Duration.ofSeconds(30)));
+
+        batch = BenchmarkSupport.documents(printers);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        dispatcher.stop();
+    }
+
+    /**
+     * One document per printer, the least loaded printer is chosen for every document, so all of them
+     * print concurrently.
+     */
+    @Benchmark
+    public void printOnEveryPrinter(Threads threads) {
+        dispatcher.addToPrint(batch);
+        dispatcher.async().allComplete(Duration.ofSeconds(30)).toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,469 @@
+package ru.sherb.actors;
+
+import akka.Done;
+import akka.NotUsed;
+import akka.actor.typed.RecipientRef;
+import akka.actor.typed.Scheduler;
+import akka.actor.typed.javadsl.AskPattern;
+import akka.stream.javadsl.Flow;
+import akka.stream.javadsl.Keep;
+import akka.stream.javadsl.Sink;
+import ru.sherb.printer.AsyncPrintDispatcher;
+import ru.sherb.printer.PrintJob;
+import ru.sherb.printer.PrintResult;
+import ru.sherb.printer.PrintStatistics;
+import ru.sherb.printer.PrintedOrder;
+import ru.sherb.printer.Printable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Non-blocking facade of a dispatcher, every query is an ask with the configured timeout.
+ * Obtained from {@link PrintDispatchActorFacade#async()}.
+ */
+public class AsyncPrintDispatchActorFacade implements AsyncPrintDispatcher {
+
+    private static final CompletionStage<List<PrintJob>> NO_JOBS = CompletableFuture.completedFuture(List.of());
+
+    // job ids of all the local dispatchers, the clock keeps them above the ids a journal restores after restart
+    private static final AtomicLong JOB_IDS = new AtomicLong(System.currentTimeMillis() << 20);
+
+    // mapAsync allocates its window up front, so a stream to an unbounded queue gets a window of its own
+    private static final int UNBOUNDED_FLOW_WINDOW = 1024;
+
+    private final RecipientRef<PrintDispatcherImpl.Command> dispatcher;
+    private final Scheduler scheduler;
+    private final Duration timeout;
+    // null if the printers are not known here, then the dispatcher rejects unsupported documents
+    private final PaperSizeIndex paperSizes;
+    // null if the dispatcher lives on another node
+    private final DispatcherMetrics metrics;
+    // null if the dispatcher is shared by other nodes, then it gives the job ids itself
+    private final AtomicLong jobIds;
+
+    // with unbounded capacity every document is accepted, so producers are not acknowledged
+    private final int capacity;
+
+    AsyncPrintDispatchActorFacade(RecipientRef<PrintDispatcherImpl.Command> dispatcher,
+                                  Scheduler scheduler,
+                                  PrintDispatcherSettings settings,
+                                  PaperSizeIndex paperSizes) {
+        this(dispatcher, scheduler, settings, paperSizes, null);
+    }
+
+    AsyncPrintDispatchActorFacade(RecipientRef<PrintDispatcherImpl.Command> dispatcher,
+                                  Scheduler scheduler,
+                                  PrintDispatcherSettings settings,
+                                  PaperSizeIndex paperSizes,
+                                  DispatcherMetrics metrics) {
+        this(dispatcher, scheduler, settings.getAskTimeout(), paperSizes, metrics, JOB_IDS, settings.getCapacity());
+    }
+
+    private AsyncPrintDispatchActorFacade(RecipientRef<PrintDispatcherImpl.Command> dispatcher,
+                                          Scheduler scheduler,
+                                          Duration timeout,
+                                          PaperSizeIndex paperSizes,
+                                          DispatcherMetrics metrics,
+                                          AtomicLong jobIds,
+                                          int capacity) {
+        this.dispatcher = dispatcher;
+        this.scheduler = scheduler;
+        this.timeout = timeout;
+        this.paperSizes = paperSizes;
+        this.metrics = metrics;
+        this.jobIds = jobIds;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Facade of a dispatcher that gets documents from many nodes, the ids of their jobs come from the
+     * dispatcher, so every document is acknowledged.
+     */
+    static AsyncPrintDispatchActorFacade shared(RecipientRef<PrintDispatcherImpl.Command> dispatcher,
+                                                Scheduler scheduler,
+                                                PrintDispatcherSettings settings) {
+        return new AsyncPrintDispatchActorFacade(dispatcher, scheduler, settings.getAskTimeout(), null, null,
+                null, settings.getCapacity());
+    }
+
+    /**
+     * @return facade of the same dispatcher which waits for replies up to the given timeout
+     */
+    public AsyncPrintDispatchActorFacade withTimeout(Duration timeout) {
+        return new AsyncPrintDispatchActorFacade(dispatcher, scheduler, timeout, paperSizes, metrics, jobIds, capacity);
+    }
+
+    @Override
+    public CompletionStage<PrintJob> addToPrint(Printable document) {
+        PrintJob job;
+        try {
+            job = newJob(document);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedStage(e);
+        }
+        if (job != null) {
+            return admit(job);
+        }
+        return AskPattern.<PrintDispatcherImpl.Command, PrintDispatcherImpl.Admission>ask(
+                dispatcher,
+                replyTo -> new PrintDispatcherImpl.AddToPrint(PrintDispatcherImpl.NO_ID, document, replyTo, null),
+                timeout,
+                scheduler
+        ).thenApply(admission -> new PrintJob(checkAccepted(admission), document));
+    }
+
+    @Override
+    public CompletionStage<List<PrintJob>> addToPrint(Collection<? extends Printable> documents) {
+        List<PrintJob> jobs;
+        try {
+            jobs = newJobs(documents);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedStage(e);
+        }
+        if (jobs != null) {
+            return admit(jobs);
+        }
+        if (documents.isEmpty()) {
+            return NO_JOBS;
+        }
+
+        var batch = List.<Printable>copyOf(documents);
+        return AskPattern.<PrintDispatcherImpl.Command, PrintDispatcherImpl.Admission>ask(
+                dispatcher,
+                replyTo -> new PrintDispatcherImpl.AddAllToPrint(PrintDispatcherImpl.NO_ID, batch, replyTo),
+                timeout,
+                scheduler
+        ).thenApply(admission -> toJobs(checkAccepted(admission), batch));
+    }
+
+    /**
+     * Gives the document its handle before it is sent, so the handle is known even if the dispatcher
+     * does not answer in time.
+     *
+     * @return {@code null} if the dispatcher gives the job ids
+     * @throws IllegalArgumentException if no printer supports the paper size of the document
+     */
+    PrintJob newJob(Printable document) {
+        checkPaperSize(document);
+        return jobIds != null ? new PrintJob(jobIds.getAndIncrement(), document) : null;
+    }
+
+    /**
+     * @return handles with consecutive ids in the order of the collection, {@code null} if the dispatcher
+     * gives the job ids
+     * @see #newJob(Printable)
+     */
+    List<PrintJob> newJobs(Collection<? extends Printable> documents) {
+        documents.forEach(this::checkPaperSize);
+        if (jobIds == null) {
+            return null;
+        }
+        var batch = List.<Printable>copyOf(documents);
+        return toJobs(jobIds.getAndAdd(batch.size()), batch);
+    }
+
+    CompletionStage<PrintJob> admit(PrintJob job) {
+        if (!isBounded()) {
+            dispatcher.tell(new PrintDispatcherImpl.AddToPrint(job.getId(), job.getDocument(), null, null));
+            return CompletableFuture.completedFuture(job);
+        }
+        return AskPattern.<PrintDispatcherImpl.Command, PrintDispatcherImpl.Admission>ask(
+                dispatcher,
+                replyTo -> new PrintDispatcherImpl.AddToPrint(job.getId(), job.getDocument(), replyTo, null),
+                timeout,
+                scheduler
+        ).thenApply(admission -> {
+            checkAccepted(admission);
+            return job;
+        });
+    }
+
+    CompletionStage<List<PrintJob>> admit(List<PrintJob> jobs) {
+        if (jobs.isEmpty()) {
+            return NO_JOBS;
+        }
+
+        long firstId = jobs.get(0).getId();
+        List<Printable> batch = new ArrayList<>(jobs.size());
+        jobs.forEach(job -> batch.add(job.getDocument()));
+        if (!isBounded()) {
+            dispatcher.tell(new PrintDispatcherImpl.AddAllToPrint(firstId, batch, null));
+            return CompletableFuture.completedFuture(jobs);
+        }
+        return AskPattern.<PrintDispatcherImpl.Command, PrintDispatcherImpl.Admission>ask(
+                dispatcher,
+                replyTo -> new PrintDispatcherImpl.AddAllToPrint(firstId, batch, replyTo),
+                timeout,
+                scheduler
+        ).thenApply(admission -> {
+            checkAccepted(admission);
+            return jobs;
+        });
+    }
+
+    private static List<PrintJob> toJobs(long firstId, List<Printable> batch) {
+        List<PrintJob> jobs = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            jobs.add(new PrintJob(firstId + i, batch.get(i)));
+        }
+        return jobs;
+    }
+
+    /**
+     * Prints documents of a stream and emits their results in the order of the documents.
+     * <p>
+     * At most {@link PrintDispatcherSettings#getCapacity()} documents of the stream are accepted and not yet
+     * printed at once, the next document is requested from upstream only when one of them is done, so a slow
+     * printer backpressures the source. Documents of other producers share the queue, the overflow strategy
+     * applies to the stream when they fill it.
+     *
+     * @param resultTimeout how long one document may wait for its result, after that it is cancelled
+     *                      and its result is {@link PrintResult.Status#TIMED_OUT}
+     */
+    public Flow<Printable, PrintResult, NotUsed> printFlow(Duration resultTimeout) {
+        return printFlow(isBounded() ? capacity : UNBOUNDED_FLOW_WINDOW, resultTimeout);
+    }
+
+    /**
+     * Like {@link #printFlow(Duration)} with at most {@code parallelism} documents of the stream in the queue,
+     * it is limited by the capacity of the queue.
+     */
+    public Flow<Printable, PrintResult, NotUsed> printFlow(int parallelism, Duration resultTimeout) {
+        // ActorFlow.ask without its ActorRef restriction, so a sharded dispatcher works as well
+        return Flow.<Printable>create().mapAsync(Math.min(parallelism, capacity), document -> {
+            long id = nextId();
+            return AskPattern.<PrintDispatcherImpl.Command, PrintResult>ask(
+                    dispatcher,
+                    resultTo -> new PrintDispatcherImpl.AddToPrint(id, document, null, resultTo),
+                    resultTimeout,
+                    scheduler
+            ).exceptionally(timeout -> timedOut(id, document));
+        });
+    }
+
+    /**
+     * @see #printFlow(Duration)
+     */
+    public Sink<Printable, CompletionStage<Done>> printSink(Duration resultTimeout) {
+        return printFlow(resultTimeout).toMat(Sink.ignore(), Keep.right());
+    }
+
+    /**
+     * @see #printFlow(int, Duration)
+     */
+    public Sink<Printable, CompletionStage<Done>> printSink(int parallelism, Duration resultTimeout) {
+        return printFlow(parallelism, resultTimeout).toMat(Sink.ignore(), Keep.right());
+    }
+
+    /**
+     * The only failure of the ask is its timeout. Nobody waits for the result of the job any more, so it is
+     * cancelled, unless the dispatcher gave the id and it is not known here.
+     */
+    private PrintResult timedOut(long id, Printable document) {
+        if (id != PrintDispatcherImpl.NO_ID) {
+            dispatcher.tell(new PrintDispatcherImpl.CancelJobs(new long[]{id}, null));
+        }
+        return new PrintResult(document, PrintResult.Status.TIMED_OUT);
+    }
+
+    private boolean isBounded() {
+        return capacity < Integer.MAX_VALUE;
+    }
+
+    private long nextId() {
+        return jobIds != null ? jobIds.getAndIncrement() : PrintDispatcherImpl.NO_ID;
+    }
+
+    /**
+     * @return job id of the first document
+     */
+    private static long checkAccepted(PrintDispatcherImpl.Admission admission) {
+        switch (admission.getVerdict()) {
+            case ACCEPTED:
+                return admission.getFirstId();
+            case UNSUPPORTED_PAPER_SIZE:
+                throw new IllegalArgumentException("No running printer supports paper size of the documents");
+            default:
+                throw new RejectedExecutionException("Print queue is full");
+        }
+    }
+
+    private void checkPaperSize(Printable document) {
+        if (paperSizes != null && !paperSizes.isSupported(document.size())) {
+            throw new IllegalArgumentException("No printer supports paper size " + document.size()
+                    + " of the document " + document.name());
+        }
+    }
+
+    @Override
+    public void cancelCurrent() {
+        dispatcher.tell(new PrintDispatcherImpl.CancelCurrentPrint());
+    }
+
+    public void cancelCurrent(int printer) {
+        dispatcher.tell(new PrintDispatcherImpl.CancelPrinterCurrentPrint(printer));
+    }
+
+    @Override
+    public CompletionStage<Boolean> cancel(PrintJob job) {
+        return AskPattern.<PrintDispatcherImpl.Command, PrintDispatcherImpl.Cancelled>ask(
+                dispatcher,
+                replyTo -> new PrintDispatcherImpl.CancelJobs(new long[]{job.getId()}, replyTo),
+                timeout,
+                scheduler
+        ).thenApply(cancelled -> cancelled.getCount() > 0);
+    }
+
+    /**
+     * Cancels many jobs in one message, prefer it to separate calls.
+     *
+     * @return number of cancelled jobs
+     */
+    public CompletionStage<Integer> cancel(Collection<PrintJob> jobs) {
+        long[] ids = jobs.stream().mapToLong(PrintJob::getId).toArray();
+        return AskPattern.<PrintDispatcherImpl.Command, PrintDispatcherImpl.Cancelled>ask(
+                dispatcher,
+                replyTo -> new PrintDispatcherImpl.CancelJobs(ids, replyTo),
+                timeout,
+                scheduler
+        ).thenApply(PrintDispatcherImpl.Cancelled::getCount);
+    }
+
+    /**
+     * The filter is called by the dispatcher for every not yet printed document, it must be fast and must not
+     * block. It can not be sent to another node, like the comparator of {@link #listPrinted(Comparator)}.
+     */
+    @Override
+    public CompletionStage<Integer> cancel(Predicate<Printable> filter) {
+        return AskPattern.<PrintDispatcherImpl.Command, PrintDispatcherImpl.Cancelled>ask(
+                dispatcher,
+                replyTo -> new PrintDispatcherImpl.CancelMatching(filter, replyTo),
+                timeout,
+                scheduler
+        ).thenApply(PrintDispatcherImpl.Cancelled::getCount);
+    }
+
+    @Override
+    public CompletionStage<Integer> cancelAllQueued() {
+        return AskPattern.ask(dispatcher, PrintDispatcherImpl.CancelAllQueued::new, timeout, scheduler)
+                .thenApply(PrintDispatcherImpl.Cancelled::getCount);
+    }
+
+    @Override
+    public CompletionStage<List<Printable>> stopPrint() {
+        return AskPattern.ask(dispatcher, PrintDispatcherImpl.StopPrint::new, timeout, scheduler)
+                .thenApply(PrintDispatcherImpl.NotPrintedDocuments::getDocuments);
+    }
+
+    /**
+     * Stops only one printer of the pool, the rest continue printing.
+     *
+     * @return documents that were sent to the stopped printer, but not printed
+     */
+    public CompletionStage<List<Printable>> stopPrint(int printer) {
+        return AskPattern.<PrintDispatcherImpl.Command, PrintDispatcherImpl.NotPrintedDocuments>ask(
+                dispatcher,
+                replyTo -> new PrintDispatcherImpl.StopPrinter(printer, replyTo),
+                timeout,
+                scheduler
+        ).thenApply(PrintDispatcherImpl.NotPrintedDocuments::getDocuments);
+    }
+
+    @Override
+    public CompletionStage<List<Printable>> listPrinted(Comparator<Printable> customComparator, int offset, int limit) {
+        checkPage(offset, limit);
+        return AskPattern.<PrintDispatcherImpl.Command, PrintDispatcherImpl.PrintedDocuments>ask(
+                dispatcher,
+                replyTo -> new PrintDispatcherImpl.GetPrintedList(replyTo, customComparator, offset, limit),
+                timeout,
+                scheduler
+        ).thenApply(PrintDispatcherImpl.PrintedDocuments::getDocuments);
+    }
+
+    @Override
+    public CompletionStage<List<Printable>> listPrinted(PrintedOrder order, int offset, int limit) {
+        checkPage(offset, limit);
+        return AskPattern.<PrintDispatcherImpl.Command, PrintDispatcherImpl.PrintedDocuments>ask(
+                dispatcher,
+                replyTo -> new PrintDispatcherImpl.GetPrintedPage(replyTo, order, offset, limit),
+                timeout,
+                scheduler
+        ).thenApply(PrintDispatcherImpl.PrintedDocuments::getDocuments);
+    }
+
+    private static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative: " + offset + ", " + limit);
+        }
+    }
+
+    @Override
+    public CompletionStage<Duration> avgPrintedTime() {
+        return AskPattern.ask(dispatcher, PrintDispatcherImpl.GetAvgPrintedTime::new, timeout, scheduler)
+                .thenApply(PrintDispatcherImpl.AvgPrintedTime::getValue);
+    }
+
+    @Override
+    public CompletionStage<PrintStatistics> stats() {
+        return AskPattern.ask(dispatcher, PrintDispatcherImpl.GetStats::new, timeout, scheduler);
+    }
+
+    @Override
+    public CompletionStage<Integer> queueDepth() {
+        return AskPattern.ask(dispatcher, PrintDispatcherImpl.GetQueueDepth::new, timeout, scheduler)
+                .thenApply(PrintDispatcherImpl.QueueDepth::getValue);
+    }
+
+    /**
+     * @return thread usage and scheduling latency of the executor the printers print on,
+     * see {@link PrintDispatcherSettings#getPrinterExecutor()}
+     */
+    public CompletionStage<ExecutorStatistics> executorStats() {
+        return AskPattern.ask(dispatcher, PrintDispatcherImpl.GetExecutorStats::new, timeout, scheduler);
+    }
+
+    /**
+     * @return measured print and queue times by printer number, see {@link PrinterStatistics}
+     */
+    public CompletionStage<List<PrinterStatistics>> printerStats() {
+        return AskPattern.ask(dispatcher, PrintDispatcherImpl.GetPrinterStats::new, timeout, scheduler)
+                .thenApply(PrintDispatcherImpl.PrinterStats::getPrinters);
+    }
+
+    /**
+     * @return not yet printed documents with their expected print time and completion, by the completion;
+     * the estimates come from the print times every printer learned for the paper sizes it printed
+     */
+    public CompletionStage<List<JobEstimate>> estimates() {
+        return AskPattern.ask(dispatcher, PrintDispatcherImpl.GetJobEstimates::new, timeout, scheduler)
+                .thenApply(PrintDispatcherImpl.JobEstimates::getJobs);
+    }
+
+    /**
+     * Reads the metrics the dispatcher publishes as it works, without a message to it, so it is cheap enough
+     * to poll and answers even when the dispatcher is flooded. The same metrics are exported to JMX,
+     * see {@link PrintDispatcherMXBean}.
+     *
+     * @throws UnsupportedOperationException for a dispatcher of another node, its metrics are exported
+     *                                       through JMX on the node that owns it
+     */
+    public DispatcherMetricsSnapshot metrics() {
+        if (metrics == null) {
+            throw new UnsupportedOperationException("Metrics of the dispatcher are exported through JMX on the owning node");
+        }
+        return metrics.snapshot();
+    }
+
+    CompletionStage<PrintDispatcherImpl.AllDocumentsArePrintedEvent> allComplete(Duration timeout) {
+        return AskPattern.ask(dispatcher, PrintDispatcherImpl.NotifyAfterAllComplete::new, timeout, scheduler);
+    }
+}
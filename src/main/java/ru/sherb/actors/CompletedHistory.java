@@ -0,0 +1,182 @@
+package ru.sherb.actors;
+
+import ru.sherb.printer.PrintedOrder;
+import ru.sherb.printer.Printable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Printed documents in the completion order, stored in a ring buffer that grows up to
+ * {@link HistoryRetention#getMaxCount()} and evicts the oldest documents first.
+ * <p>
+ * Orders of {@link PrintedOrder} are maintained as indexes, so a page of them is served without sorting:
+ * the completion order is the ring itself, name and print duration orders are kept in {@link RankedSet}s.
+ * A page costs {@code O(log n + limit)} whatever its offset.
+ * Not thread safe, it is owned by the dispatcher actor.
+ */
+final class CompletedHistory {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Name and duration are captured on completion, so a mutable document can not break the indexes.
+     */
+    private static final class Entry {
+        final long seq;
+        final Printable document;
+        final String name;
+        final long durationNanos;
+        final long completedAt;
+
+        Entry(long seq, Printable document, long completedAt) {
+            this.seq = seq;
+            this.document = document;
+            this.name = document.name();
+            this.durationNanos = document.printDuration().toNanos();
+            this.completedAt = completedAt;
+        }
+    }
+
+    private static final Comparator<Entry> BY_NAME = Comparator
+            .comparing((Entry e) -> e.name)
+            .thenComparingLong(e -> e.seq);
+
+    private static final Comparator<Entry> BY_DURATION = Comparator
+            .comparingLong((Entry e) -> e.durationNanos)
+            .thenComparingLong(e -> e.seq);
+
+    private final int maxCount;
+    private final long maxAgeNanos;
+
+    private Entry[] ring;
+    private int head;
+    private int size;
+    private long nextSeq;
+
+    private final RankedSet<Entry> byName = new RankedSet<>(BY_NAME);
+    private final RankedSet<Entry> byDuration = new RankedSet<>(BY_DURATION);
+
+    CompletedHistory(HistoryRetention retention) {
+        this.maxCount = retention.getMaxCount();
+        this.maxAgeNanos = retention.getMaxAgeNanos();
+        this.ring = new Entry[Math.min(INITIAL_CAPACITY, maxCount)];
+    }
+
+    /**
+     * @param now completion time in {@link System#nanoTime()} units
+     */
+    void add(Printable document, long now) {
+        evictExpired(now);
+        if (size == maxCount) {
+            evictOldest();
+        }
+        if (size == ring.length) {
+            grow();
+        }
+
+        var entry = new Entry(nextSeq++, document, now);
+        ring[index(size)] = entry;
+        size += 1;
+        byName.add(entry);
+        byDuration.add(entry);
+    }
+
+    void evictExpired(long now) {
+        while (size > 0 && now - ring[head].completedAt > maxAgeNanos) {
+            evictOldest();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Visits documents from the oldest to the newest.
+     */
+    void forEach(Consumer<Printable> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(ring[index(i)].document);
+        }
+    }
+
+    List<Printable> page(PrintedOrder order, int offset, int limit) {
+        int from = Math.min(offset, size);
+        int to = (int) Math.min((long) from + limit, size);
+        List<Printable> result = new ArrayList<>(to - from);
+
+        switch (order) {
+            case COMPLETION_TIME:
+                for (int i = from; i < to; i++) {
+                    result.add(ring[index(i)].document);
+                }
+                return result;
+            case NAME:
+                return page(byName, from, to, result);
+            case PRINT_DURATION:
+                return page(byDuration, from, to, result);
+            default:
+                throw new IllegalArgumentException("Unknown order: " + order);
+        }
+    }
+
+    private static List<Printable> page(RankedSet<Entry> index, int from, int to, List<Printable> result) {
+        index.forEachFrom(from, to - from, entry -> result.add(entry.document));
+        return result;
+    }
+
+    /**
+     * Orders by an arbitrary comparator. Only {@code offset + limit} smallest documents are kept while
+     * scanning, so a small page of a big history costs {@code O(n log(offset + limit))}.
+     */
+    List<Printable> page(Comparator<Printable> comparator, int offset, int limit) {
+        int from = Math.min(offset, size);
+        int to = (int) Math.min((long) from + limit, size);
+
+        List<Printable> sorted;
+        if (to == size) {
+            sorted = new ArrayList<>(size);
+            forEach(sorted::add);
+            sorted.sort(comparator);
+        } else {
+            var largestOnTop = new PriorityQueue<Printable>(to + 1, comparator.reversed());
+            forEach(document -> {
+                largestOnTop.add(document);
+                if (largestOnTop.size() > to) {
+                    largestOnTop.poll();
+                }
+            });
+            sorted = new ArrayList<>(largestOnTop);
+            sorted.sort(comparator);
+        }
+        return from == 0 ? sorted : new ArrayList<>(sorted.subList(from, to));
+    }
+
+    private void evictOldest() {
+        var entry = ring[head];
+        byName.remove(entry);
+        byDuration.remove(entry);
+        ring[head] = null;
+        head = index(1);
+        size -= 1;
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min((long) ring.length * 2, maxCount);
+        var newRing = new Entry[capacity];
+        for (int i = 0; i < size; i++) {
+            newRing[i] = ring[index(i)];
+        }
+        ring = newRing;
+        head = 0;
+    }
+
+    private int index(int offset) {
+        int index = head + offset;
+        return index < ring.length ? index : index - ring.length;
+    }
+}
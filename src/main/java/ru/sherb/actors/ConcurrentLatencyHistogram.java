@@ -0,0 +1,71 @@
+package ru.sherb.actors;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Nanosecond durations in the buckets of {@link LatencyHistogram}, recorded by one thread and read by any.
+ * <p>
+ * The writer publishes with ordered stores only, without a CAS or a fence, so recording costs about as much
+ * as in the single threaded histogram. A reader may see a value in the buckets before it is counted,
+ * the snapshot clamps the percentiles to the values it has seen.
+ */
+final class ConcurrentLatencyHistogram {
+
+    private final AtomicLongArray buckets = new AtomicLongArray(LatencyHistogram.BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Must be called by a single thread.
+     */
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int bucket = LatencyHistogram.bucket(value);
+        buckets.lazySet(bucket, buckets.get(bucket) + 1);
+        sum.lazySet(sum.get() + value);
+        if (value > max.get()) {
+            max.lazySet(value);
+        }
+        count.lazySet(count.get() + 1);
+    }
+
+    long count() {
+        return count.get();
+    }
+
+    LatencySnapshot snapshot() {
+        long total = count.get();
+        if (total == 0) {
+            return LatencySnapshot.EMPTY;
+        }
+        long[] copy = new long[LatencyHistogram.BUCKETS];
+        long seen = 0;
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = buckets.get(i);
+            seen += copy[i];
+        }
+        long largest = max.get();
+        return new LatencySnapshot(
+                total,
+                Duration.ofNanos(sum.get() / total),
+                Duration.ofNanos(percentile(copy, seen, 0.50, largest)),
+                Duration.ofNanos(percentile(copy, seen, 0.99, largest)),
+                Duration.ofNanos(percentile(copy, seen, 0.999, largest)),
+                Duration.ofNanos(largest));
+    }
+
+    private static long percentile(long[] buckets, long count, double quantile, long max) {
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(max, LatencyHistogram.upperBound(i));
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,185 @@
+package ru.sherb.actors;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hot path metrics of a dispatcher. The dispatcher actor is the only writer, it observes the state changes
+ * of its {@link JobTable}, and any thread may read a snapshot, JMX included.
+ * <p>
+ * Writes are ordered stores without CAS or locks, see {@link ConcurrentLatencyHistogram}.
+ */
+final class DispatcherMetrics implements JobTable.StateObserver, PrintDispatcherMXBean {
+
+    private static final int PRINTED = 0;
+    private static final int CANCELLED = 1;
+    private static final int DROPPED = 2;
+    private static final int REJECTED = 3;
+
+    private final long startedAt = System.nanoTime();
+
+    // by JobTable state
+    private final AtomicLongArray jobs = new AtomicLongArray(JobTable.IN_PROGRESS + 1);
+    private final ConcurrentLatencyHistogram[] timeIn = {
+            null,
+            new ConcurrentLatencyHistogram(),
+            new ConcurrentLatencyHistogram(),
+            new ConcurrentLatencyHistogram()};
+
+    private final AtomicLongArray outcomes = new AtomicLongArray(REJECTED + 1);
+
+    // busy time of finished prints and the start of the current one, 0 if the printer is idle
+    private final AtomicLongArray busyNanos;
+    private final AtomicLongArray busySince;
+
+    DispatcherMetrics(int printers) {
+        this.busyNanos = new AtomicLongArray(printers);
+        this.busySince = new AtomicLongArray(printers);
+    }
+
+    @Override
+    public void moved(int printer, byte from, byte to, long since, long now) {
+        if (from != JobTable.FREE) {
+            jobs.lazySet(from, jobs.get(from) - 1);
+            timeIn[from].record(now - since);
+        }
+        if (to != JobTable.FREE) {
+            jobs.lazySet(to, jobs.get(to) + 1);
+        }
+
+        if (to == JobTable.IN_PROGRESS) {
+            // never 0, it means idle
+            busySince.lazySet(printer, now | 1);
+        } else if (from == JobTable.IN_PROGRESS) {
+            busyNanos.lazySet(printer, busyNanos.get(printer) + now - since);
+            busySince.lazySet(printer, 0);
+        }
+    }
+
+    void printed() {
+        increment(PRINTED);
+    }
+
+    void cancelled() {
+        increment(CANCELLED);
+    }
+
+    void dropped() {
+        increment(DROPPED);
+    }
+
+    void rejected(int count) {
+        outcomes.lazySet(REJECTED, outcomes.get(REJECTED) + count);
+    }
+
+    private void increment(int outcome) {
+        outcomes.lazySet(outcome, outcomes.get(outcome) + 1);
+    }
+
+    DispatcherMetricsSnapshot snapshot() {
+        return new DispatcherMetricsSnapshot(
+                getWaitingJobs(),
+                getQueuedJobs(),
+                getInProgressJobs(),
+                timeIn[JobTable.WAITING].snapshot(),
+                timeIn[JobTable.QUEUED].snapshot(),
+                timeIn[JobTable.IN_PROGRESS].snapshot(),
+                getPrintedJobs(),
+                getCancelledJobs(),
+                getDroppedJobs(),
+                getRejectedJobs(),
+                busyRatios());
+    }
+
+    private List<Double> busyRatios() {
+        long now = System.nanoTime();
+        long uptime = Math.max(1, now - startedAt);
+        List<Double> result = new ArrayList<>(busyNanos.length());
+        for (int printer = 0; printer < busyNanos.length(); printer++) {
+            long since = busySince.get(printer);
+            long busy = busyNanos.get(printer) + (since != 0 ? Math.max(0, now - since) : 0);
+            result.add(Math.min(1.0, (double) busy / uptime));
+        }
+        return result;
+    }
+
+    //region JMX
+
+    @Override
+    public int getWaitingJobs() {
+        return (int) jobs.get(JobTable.WAITING);
+    }
+
+    @Override
+    public int getQueuedJobs() {
+        return (int) jobs.get(JobTable.QUEUED);
+    }
+
+    @Override
+    public int getInProgressJobs() {
+        return (int) jobs.get(JobTable.IN_PROGRESS);
+    }
+
+    @Override
+    public long getPrintedJobs() {
+        return outcomes.get(PRINTED);
+    }
+
+    @Override
+    public long getCancelledJobs() {
+        return outcomes.get(CANCELLED);
+    }
+
+    @Override
+    public long getDroppedJobs() {
+        return outcomes.get(DROPPED);
+    }
+
+    @Override
+    public long getRejectedJobs() {
+        return outcomes.get(REJECTED);
+    }
+
+    @Override
+    public double getWaitingMillisP50() {
+        return millis(timeIn[JobTable.WAITING].snapshot().getP50());
+    }
+
+    @Override
+    public double getWaitingMillisP99() {
+        return millis(timeIn[JobTable.WAITING].snapshot().getP99());
+    }
+
+    @Override
+    public double getQueuedMillisP50() {
+        return millis(timeIn[JobTable.QUEUED].snapshot().getP50());
+    }
+
+    @Override
+    public double getQueuedMillisP99() {
+        return millis(timeIn[JobTable.QUEUED].snapshot().getP99());
+    }
+
+    @Override
+    public double getInProgressMillisP50() {
+        return millis(timeIn[JobTable.IN_PROGRESS].snapshot().getP50());
+    }
+
+    @Override
+    public double getInProgressMillisP99() {
+        return millis(timeIn[JobTable.IN_PROGRESS].snapshot().getP99());
+    }
+
+    @Override
+    public double[] getPrinterBusyRatios() {
+        return busyRatios().stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    //endregion
+
+    private static double millis(Duration duration) {
+        return duration.toNanos() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,48 @@
+package ru.sherb.actors;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Point in time view of a dispatcher, counters are read one by one, so they may be off by the jobs that
+ * changed state while the snapshot was taken.
+ */
+@Value
+public class DispatcherMetricsSnapshot {
+
+    /**
+     * Jobs sent to a printer that has not yet taken them from its mailbox, the mailbox backlog of the printers.
+     */
+    int waiting;
+
+    /**
+     * Jobs in the queues of the printers.
+     */
+    int queued;
+
+    int inProgress;
+
+    LatencySnapshot timeWaiting;
+    LatencySnapshot timeQueued;
+    LatencySnapshot timeInProgress;
+
+    long printed;
+
+    /**
+     * Jobs cancelled while queued or printing, including the dropped ones.
+     */
+    long cancelled;
+
+    /**
+     * Dropped by {@link OverflowStrategy#DROP_OLDEST}.
+     */
+    long dropped;
+
+    long rejected;
+
+    /**
+     * Share of the time every printer was printing since the dispatcher started, by printer number.
+     */
+    List<Double> printerBusyRatios;
+}
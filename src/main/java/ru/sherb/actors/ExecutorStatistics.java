@@ -0,0 +1,33 @@
+package ru.sherb.actors;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the executor that runs {@link ru.sherb.printer.Printer#print} calls of one dispatcher.
+ * Scheduling latency is the time a print waits from its submission until a thread starts it.
+ */
+@Value
+public class ExecutorStatistics {
+
+    String name;
+
+    /**
+     * Upper bound of the threads, {@code 0} if the executor is not bounded or its bound is not known.
+     */
+    int maxThreads;
+
+    /**
+     * Threads that print right now.
+     */
+    int busyThreads;
+
+    int peakBusyThreads;
+
+    long completedTasks;
+
+    Duration averageSchedulingLatency;
+
+    Duration maxSchedulingLatency;
+}
@@ -0,0 +1,38 @@
+package ru.sherb.actors;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link PrintQueue} in the order of arrival, every operation including a removal by id is {@code O(1)}.
+ */
+final class FifoPrintQueue implements PrintQueue {
+
+    private final Map<Long, QueuedDocument> queue = new LinkedHashMap<>();
+
+    @Override
+    public void add(QueuedDocument document) {
+        queue.put(document.id(), document);
+    }
+
+    @Override
+    public QueuedDocument poll() {
+        if (queue.isEmpty()) {
+            return null;
+        }
+        var first = queue.values().iterator();
+        var next = first.next();
+        first.remove();
+        return next;
+    }
+
+    @Override
+    public boolean remove(long id) {
+        return queue.remove(id) != null;
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,46 @@
+package ru.sherb.actors;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * How long the dispatcher keeps printed documents for {@link ru.sherb.printer.PrintDispatcher#listPrinted()}.
+ * Statistics of printed documents are not affected by eviction.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class HistoryRetention {
+
+    private static final HistoryRetention UNBOUNDED = new HistoryRetention(Integer.MAX_VALUE, Long.MAX_VALUE);
+
+    int maxCount;
+    long maxAgeNanos;
+
+    public static HistoryRetention unbounded() {
+        return UNBOUNDED;
+    }
+
+    public static HistoryRetention maxCount(int maxCount) {
+        return of(maxCount, null);
+    }
+
+    public static HistoryRetention maxAge(Duration maxAge) {
+        return of(Integer.MAX_VALUE, maxAge);
+    }
+
+    /**
+     * @param maxAge {@code null} means documents are never evicted because of their age
+     */
+    public static HistoryRetention of(int maxCount, Duration maxAge) {
+        if (maxCount < 1) {
+            throw new IllegalArgumentException("maxCount must be positive: " + maxCount);
+        }
+        if (maxAge != null && (maxAge.isNegative() || maxAge.isZero())) {
+            throw new IllegalArgumentException("maxAge must be positive: " + maxAge);
+        }
+        return new HistoryRetention(maxCount, maxAge == null ? Long.MAX_VALUE : maxAge.toNanos());
+    }
+}
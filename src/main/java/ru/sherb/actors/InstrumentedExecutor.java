@@ -0,0 +1,92 @@
+package ru.sherb.actors;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts thread usage and scheduling latency of the executor it wraps. Counters are updated by the
+ * printing threads without locks and read by the dispatcher, a snapshot is not atomic across counters.
+ */
+final class InstrumentedExecutor implements Executor, AutoCloseable {
+
+    private final String name;
+    private final Executor delegate;
+    private final int maxThreads;
+
+    // shut down with the dispatcher, null if the executor is shared
+    private final ExecutorService owned;
+
+    private final AtomicInteger busy = new AtomicInteger();
+    private final AtomicInteger peakBusy = new AtomicInteger();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder schedulingNanos = new LongAdder();
+    private final AtomicLong maxSchedulingNanos = new AtomicLong();
+
+    private InstrumentedExecutor(String name, Executor delegate, int maxThreads, ExecutorService owned) {
+        this.name = name;
+        this.delegate = delegate;
+        this.maxThreads = maxThreads;
+        this.owned = owned;
+    }
+
+    static InstrumentedExecutor shared(String name, Executor delegate) {
+        return new InstrumentedExecutor(name, delegate, 0, null);
+    }
+
+    static InstrumentedExecutor owned(String name, ExecutorService delegate, int maxThreads) {
+        return new InstrumentedExecutor(name, delegate, maxThreads, delegate);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        long submittedAt = System.nanoTime();
+        delegate.execute(() -> {
+            long latency = System.nanoTime() - submittedAt;
+            started.increment();
+            schedulingNanos.add(latency);
+            maxSchedulingNanos.accumulateAndGet(latency, Math::max);
+            peakBusy.accumulateAndGet(busy.incrementAndGet(), Math::max);
+            try {
+                task.run();
+            } finally {
+                busy.decrementAndGet();
+                completed.increment();
+            }
+        });
+    }
+
+    ExecutorStatistics snapshot() {
+        long count = started.sum();
+        return new ExecutorStatistics(
+                name,
+                maxThreads,
+                busy.get(),
+                peakBusy.get(),
+                completed.sum(),
+                Duration.ofNanos(count == 0 ? 0 : schedulingNanos.sum() / count),
+                Duration.ofNanos(maxSchedulingNanos.get()));
+    }
+
+    /**
+     * Threads of an owned executor run only prints, so a print may be cancelled by an interrupt. Threads of
+     * a shared one are not interrupted, the interrupt could hit a task of somebody else.
+     */
+    boolean interruptsOnCancel() {
+        return owned != null;
+    }
+
+    /**
+     * Started prints are finished, the printers are stopped by then.
+     */
+    @Override
+    public void close() {
+        if (owned != null) {
+            owned.shutdown();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ru.sherb.actors;
+
+import lombok.Value;
+import ru.sherb.printer.Printable;
+
+import java.time.Duration;
+
+/**
+ * Expected print of a not yet printed document, by the print time its printer learned,
+ * see {@link AsyncPrintDispatchActorFacade#estimates()}.
+ */
+@Value
+public class JobEstimate {
+
+    Printable document;
+
+    int printer;
+
+    /**
+     * Expected print time of the document on its printer.
+     */
+    Duration printTime;
+
+    /**
+     * Expected time from the query until the document is printed.
+     */
+    Duration completion;
+}
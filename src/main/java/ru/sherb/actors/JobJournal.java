@@ -0,0 +1,297 @@
+package ru.sherb.actors;
+
+import ru.sherb.printer.Printable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the dispatcher jobs, so not printed documents survive a restart.
+ * <p>
+ * Records are written to a memory-mapped file of a fixed size, every record is
+ * {@code [length][crc32][type][id][document]} with the document in the {@link PrintableCodec} form. A record
+ * becomes visible only when its length is written, so a torn tail is cut on recovery. Writes are made durable
+ * in groups by {@link #flush()}. When the file is full, the live jobs are written to a snapshot and a new
+ * journal file is started: the snapshot is written aside and atomically moved, journals older than the
+ * snapshot are deleted.
+ * <p>
+ * The journal writes the given {@link JobTable} to snapshots, so it must already contain the effect of
+ * every appended record. Not thread safe, it is owned by the dispatcher actor.
+ */
+final class JobJournal implements AutoCloseable {
+
+    static final int DEFAULT_FILE_SIZE = 64 << 20;
+
+    private static final byte ADD     = 1;
+    private static final byte STARTED = 2;
+    private static final byte DONE    = 3;
+
+    // length and checksum of a record body
+    private static final int RECORD_HEADER = Integer.BYTES * 2;
+    private static final int SNAPSHOT_MAGIC = 0x50524E54;
+    private static final int SNAPSHOT_BUFFER = 1 << 20;
+
+    private static final String SNAPSHOT = "snapshot.bin";
+    private static final String SNAPSHOT_TMP = "snapshot.tmp";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    private final Path directory;
+    private final int fileSize;
+    private final JobTable jobs;
+    private final CRC32 crc = new CRC32();
+
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer journal;
+    private boolean dirty;
+
+    // greater than every id ever journaled
+    private long nextId = Long.MIN_VALUE;
+
+    private JobJournal(Path directory, int fileSize, JobTable jobs) {
+        this.directory = directory;
+        this.fileSize = fileSize;
+        this.jobs = jobs;
+    }
+
+    static JobJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_FILE_SIZE);
+    }
+
+    /**
+     * Restores jobs from the last snapshot and the journal after it, they are available from {@link #jobs()}.
+     * Every restored job is {@link JobTable#WAITING}, or {@link JobTable#IN_PROGRESS} if it was printing.
+     */
+    static JobJournal open(Path directory, int fileSize) throws IOException {
+        Files.createDirectories(directory);
+        var result = new JobJournal(directory, fileSize, new JobTable());
+
+        var snapshot = directory.resolve(SNAPSHOT);
+        if (Files.exists(snapshot)) {
+            result.readSnapshot(snapshot);
+        }
+        result.openJournal(false);
+        result.deleteOldJournals();
+        return result;
+    }
+
+    JobTable jobs() {
+        return jobs;
+    }
+
+    long nextId() {
+        return nextId;
+    }
+
+    void add(long id, Printable document) {
+        nextId = Math.max(nextId, id + 1);
+        if (!append(journal, ADD, id, document)) {
+            snapshot();
+        }
+        dirty = true;
+    }
+
+    void started(long id) {
+        if (!append(journal, STARTED, id, null)) {
+            snapshot();
+        }
+        dirty = true;
+    }
+
+    void done(long id) {
+        if (!append(journal, DONE, id, null)) {
+            snapshot();
+        }
+        dirty = true;
+    }
+
+    /**
+     * Makes all appended records durable, the group commit of everything since the previous flush.
+     */
+    void flush() {
+        if (dirty) {
+            journal.force();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Writes the live jobs to a new snapshot and starts an empty journal after it.
+     */
+    void snapshot() {
+        try {
+            var tmp = directory.resolve(SNAPSHOT_TMP);
+            try (var out = FileChannel.open(tmp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                var writer = new SnapshotWriter(out);
+                writer.buffer.putInt(SNAPSHOT_MAGIC).put(PrintableCodec.VERSION).putLong(generation + 1).putLong(nextId);
+                jobs.forEach((id, state, document, printer) -> writer.write(id, document));
+                writer.drain();
+                out.force(true);
+            }
+            Files.move(tmp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            channel.close();
+            generation += 1;
+            openJournal(true);
+            deleteOldJournals();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private final class SnapshotWriter {
+        private final FileChannel out;
+        private ByteBuffer buffer = ByteBuffer.allocate(SNAPSHOT_BUFFER);
+
+        SnapshotWriter(FileChannel out) {
+            this.out = out;
+        }
+
+        void write(long id, Printable document) {
+            if (append(buffer, ADD, id, document)) {
+                return;
+            }
+            drain();
+            int length = RECORD_HEADER + bodyLength(ADD, document);
+            if (buffer.capacity() < length) {
+                buffer = ByteBuffer.allocate(length);
+            }
+            append(buffer, ADD, id, document);
+        }
+
+        void drain() {
+            try {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void readSnapshot(Path snapshot) throws IOException {
+        try (var in = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            var buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            if (buffer.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a journal snapshot: " + snapshot);
+            }
+            byte version = buffer.get();
+            if (version != PrintableCodec.VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + snapshot);
+            }
+            generation = buffer.getLong();
+            nextId = buffer.getLong();
+            replay(buffer);
+        }
+    }
+
+    private void openJournal(boolean fresh) throws IOException {
+        var path = journalPath(generation);
+        if (fresh) {
+            Files.deleteIfExists(path);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        replay(journal);
+    }
+
+    private void deleteOldJournals() throws IOException {
+        try (var files = Files.newDirectoryStream(directory, JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX)) {
+            for (Path file : files) {
+                var name = file.getFileName().toString();
+                var fileGeneration = name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length());
+                if (Long.parseLong(fileGeneration) < generation) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private Path journalPath(long generation) {
+        return directory.resolve(JOURNAL_PREFIX + generation + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Applies records to the jobs up to the first incomplete one, the buffer is left at its position.
+     */
+    private void replay(ByteBuffer buffer) {
+        while (buffer.remaining() >= RECORD_HEADER) {
+            int start = buffer.position();
+            int length = buffer.getInt(start);
+            if (length <= 0 || length > buffer.remaining() - RECORD_HEADER
+                    || checksum(buffer, start + RECORD_HEADER, length) != buffer.getInt(start + Integer.BYTES)) {
+                break;
+            }
+
+            buffer.position(start + RECORD_HEADER);
+            byte type = buffer.get();
+            long id = buffer.getLong();
+            switch (type) {
+                case ADD:
+                    jobs.put(id, PrintableCodec.decode(buffer), 0, JobTable.WAITING);
+                    nextId = Math.max(nextId, id + 1);
+                    break;
+                case STARTED:
+                    jobs.move(id, JobTable.IN_PROGRESS);
+                    break;
+                case DONE:
+                    jobs.remove(id);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown journal record: " + type);
+            }
+            buffer.position(start + RECORD_HEADER + length);
+        }
+    }
+
+    /**
+     * @return {@code false} if there is no room for the record
+     */
+    private boolean append(ByteBuffer out, byte type, long id, Printable document) {
+        int length = bodyLength(type, document);
+        int start = out.position();
+        if (out.remaining() < RECORD_HEADER + length) {
+            return false;
+        }
+
+        out.position(start + RECORD_HEADER);
+        out.put(type).putLong(id);
+        if (type == ADD) {
+            PrintableCodec.encode(out, document);
+        }
+        out.putInt(start + Integer.BYTES, checksum(out, start + RECORD_HEADER, length));
+        // the length goes last, it commits the record
+        out.putInt(start, length);
+        return true;
+    }
+
+    private int checksum(ByteBuffer buffer, int offset, int length) {
+        crc.reset();
+        crc.update(buffer.duplicate().limit(offset + length).position(offset));
+        return (int) crc.getValue();
+    }
+
+    private static int bodyLength(byte type, Printable document) {
+        int length = Byte.BYTES + Long.BYTES;
+        return type == ADD ? length + PrintableCodec.encodedLength(document) : length;
+    }
+}
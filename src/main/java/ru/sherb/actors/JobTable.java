@@ -0,0 +1,396 @@
+package ru.sherb.actors;
+
+import akka.actor.typed.ActorRef;
+import ru.sherb.printer.PrintResult;
+import ru.sherb.printer.Printable;
+
+import java.util.Arrays;
+
+/**
+ * Not yet printed dispatcher jobs keyed by the primitive document id.
+ * <p>
+ * Open addressing table with linear probing, its probe arrays keep only the id and the index of the job
+ * entry, 12 bytes a slot at a load of at most a half. Entries are dense parallel arrays of about 53 bytes
+ * a job, a removed entry is replaced by the last one. The state of a job is a byte in its entry, so a state
+ * change is an in place write without boxing or moving the entry between maps.
+ * Every entry keeps the {@link System#nanoTime()} its job entered every state it passed, in one flat
+ * {@code long} array of {@value #STAMPS} stamps per entry, transitions are reported to the {@link StateObserver}.
+ * Not thread safe, it is owned by the dispatcher actor.
+ */
+final class JobTable {
+
+    static final byte FREE        = 0;
+    static final byte WAITING     = 1;
+    static final byte QUEUED      = 2;
+    static final byte IN_PROGRESS = 3;
+
+    interface Visitor {
+        void visit(long id, byte state, Printable document, int printer);
+    }
+
+    /**
+     * Gets every state change, a new job comes from {@link #FREE} and a removed one goes to it.
+     */
+    interface StateObserver {
+        /**
+         * @param since when the job entered the {@code from} state
+         */
+        void moved(int printer, byte from, byte to, long since, long now);
+    }
+
+    static final StateObserver NO_OBSERVER = (printer, from, to, since, now) -> { };
+
+    private static final int MIN_CAPACITY = 16;
+
+    // stamps of WAITING, QUEUED and IN_PROGRESS
+    private static final int STAMPS = 3;
+
+    // probe arrays, a slot is free if its entry is 0, otherwise it is the entry index + 1
+    private long[] slotIds;
+    private int[] slotEntries;
+
+    // entries of the jobs, the first size of them are in use
+    private long[] ids;
+    private byte[] states;
+    private Printable[] documents;
+    private int[] printers;
+    private ActorRef<PrintResult>[] listeners;
+    private long[] stamps;
+    private long[] estimates;
+
+    private StateObserver observer = NO_OBSERVER;
+
+    private final int[] stateCounts = new int[IN_PROGRESS + 1];
+    private int size;
+    private int shift;
+
+    JobTable() {
+        this(MIN_CAPACITY);
+    }
+
+    JobTable(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocateSlots(capacity);
+        allocateEntries(capacity / 2);
+    }
+
+    private void allocateSlots(int capacity) {
+        this.slotIds = new long[capacity];
+        this.slotEntries = new int[capacity];
+        this.shift = Long.numberOfLeadingZeros(capacity - 1);
+    }
+
+    private void allocateEntries(int capacity) {
+        this.ids = new long[capacity];
+        this.states = new byte[capacity];
+        this.documents = new Printable[capacity];
+        this.printers = new int[capacity];
+        @SuppressWarnings("unchecked")
+        var listeners = (ActorRef<PrintResult>[]) new ActorRef<?>[capacity];
+        this.listeners = listeners;
+        this.stamps = new long[capacity * STAMPS];
+        this.estimates = new long[capacity];
+    }
+
+    /**
+     * Reports the current jobs as new ones, then all the changes.
+     */
+    void observe(StateObserver observer) {
+        this.observer = observer;
+        for (int entry = 0; entry < size; entry++) {
+            long since = enteredAt(entry);
+            observer.moved(printers[entry], FREE, states[entry], since, since);
+        }
+    }
+
+    void put(long id, Printable document, int printer, byte state) {
+        put(id, document, printer, state, null, System.nanoTime());
+    }
+
+    /**
+     * @param listener waits for the {@link PrintResult} of the job, optional
+     * @param now      {@link System#nanoTime()} of the put
+     */
+    void put(long id, Printable document, int printer, byte state, ActorRef<PrintResult> listener, long now) {
+        if ((size + 1) * 2 > slotIds.length) {
+            growSlots();
+        }
+
+        int slot = home(id);
+        int entry = -1;
+        while (slotEntries[slot] != 0) {
+            if (slotIds[slot] == id) {
+                entry = slotEntries[slot] - 1;
+                observer.moved(printers[entry], states[entry], FREE, enteredAt(entry), now);
+                stateCounts[states[entry]] -= 1;
+                break;
+            }
+            slot = next(slot);
+        }
+        if (entry < 0) {
+            if (size == ids.length) {
+                growEntries();
+            }
+            entry = size++;
+            slotIds[slot] = id;
+            slotEntries[slot] = entry + 1;
+        }
+
+        ids[entry] = id;
+        states[entry] = state;
+        documents[entry] = document;
+        printers[entry] = printer;
+        listeners[entry] = listener;
+        Arrays.fill(stamps, entry * STAMPS, entry * STAMPS + STAMPS, now);
+        estimates[entry] = 0;
+        stateCounts[state] += 1;
+        observer.moved(printer, FREE, state, now, now);
+    }
+
+    /**
+     * Moves the job to the given state, jobs never go back to the previous states.
+     *
+     * @return {@code false} if there is no such job or it is already past the given state
+     */
+    boolean move(long id, byte state) {
+        return move(id, state, System.nanoTime());
+    }
+
+    /**
+     * @param now {@link System#nanoTime()} the job entered the state, also of the skipped states
+     */
+    boolean move(long id, byte state, long now) {
+        int entry = entryOf(id);
+        if (entry < 0 || states[entry] >= state) {
+            return false;
+        }
+        observer.moved(printers[entry], states[entry], state, enteredAt(entry), now);
+        stateCounts[states[entry]] -= 1;
+        stateCounts[state] += 1;
+        for (int skipped = states[entry] + 1; skipped <= state; skipped++) {
+            stamps[entry * STAMPS + skipped - 1] = now;
+        }
+        states[entry] = state;
+        return true;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} the job entered the given state, or {@code 0} if there is no such job
+     * or it has not reached the state yet
+     */
+    long enteredAt(long id, byte state) {
+        int entry = entryOf(id);
+        return entry < 0 || states[entry] < state ? 0 : stamps[entry * STAMPS + state - 1];
+    }
+
+    /**
+     * Sets the expected print time of the job, it is kept until the job is removed.
+     */
+    void estimate(long id, long nanos) {
+        int entry = entryOf(id);
+        if (entry >= 0) {
+            estimates[entry] = nanos;
+        }
+    }
+
+    /**
+     * @return expected print time of the job, {@code 0} if it is not known
+     */
+    long estimate(long id) {
+        int entry = entryOf(id);
+        return entry < 0 ? 0 : estimates[entry];
+    }
+
+    private long enteredAt(int entry) {
+        return stamps[entry * STAMPS + states[entry] - 1];
+    }
+
+    byte state(long id) {
+        int entry = entryOf(id);
+        return entry < 0 ? FREE : states[entry];
+    }
+
+    Printable document(long id) {
+        int entry = entryOf(id);
+        return entry < 0 ? null : documents[entry];
+    }
+
+    /**
+     * @return the printer of the job or {@code -1} if there is no such job
+     */
+    int printer(long id) {
+        int entry = entryOf(id);
+        return entry < 0 ? -1 : printers[entry];
+    }
+
+    ActorRef<PrintResult> listener(long id) {
+        int entry = entryOf(id);
+        return entry < 0 ? null : listeners[entry];
+    }
+
+    Printable remove(long id) {
+        return remove(id, System.nanoTime());
+    }
+
+    Printable remove(long id, long now) {
+        int slot = slotOf(id);
+        if (slot < 0) {
+            return null;
+        }
+        int entry = slotEntries[slot] - 1;
+        observer.moved(printers[entry], states[entry], FREE, enteredAt(entry), now);
+        var document = documents[entry];
+        stateCounts[states[entry]] -= 1;
+        shiftBack(slot);
+        moveLastTo(entry);
+        return document;
+    }
+
+    /**
+     * Removes every job, like {@link #remove(long, long)} one by one.
+     */
+    void clear(long now) {
+        for (int entry = 0; entry < size; entry++) {
+            observer.moved(printers[entry], states[entry], FREE, enteredAt(entry), now);
+        }
+        Arrays.fill(slotEntries, 0);
+        Arrays.fill(documents, 0, size, null);
+        Arrays.fill(listeners, 0, size, null);
+        Arrays.fill(stateCounts, 0);
+        size = 0;
+    }
+
+    int count(byte state) {
+        return stateCounts[state];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return ids of the jobs sent to the printer
+     */
+    long[] idsOf(int printer) {
+        int count = 0;
+        for (int entry = 0; entry < size; entry++) {
+            if (printers[entry] == printer) {
+                count += 1;
+            }
+        }
+
+        long[] result = new long[count];
+        int i = 0;
+        for (int entry = 0; entry < size && i < count; entry++) {
+            if (printers[entry] == printer) {
+                result[i++] = ids[entry];
+            }
+        }
+        return result;
+    }
+
+    void forEach(Visitor visitor) {
+        for (int entry = 0; entry < size; entry++) {
+            visitor.visit(ids[entry], states[entry], documents[entry], printers[entry]);
+        }
+    }
+
+    private int entryOf(long id) {
+        int slot = slotOf(id);
+        return slot < 0 ? -1 : slotEntries[slot] - 1;
+    }
+
+    private int slotOf(long id) {
+        int slot = home(id);
+        while (slotEntries[slot] != 0) {
+            if (slotIds[slot] == id) {
+                return slot;
+            }
+            slot = next(slot);
+        }
+        return -1;
+    }
+
+    /**
+     * Backward shift deletion, keeps probe sequences without tombstones.
+     */
+    private void shiftBack(int freed) {
+        int slot = freed;
+        while (true) {
+            slot = next(slot);
+            if (slotEntries[slot] == 0) {
+                break;
+            }
+            int home = home(slotIds[slot]);
+            boolean canMove = freed <= slot
+                    ? home <= freed || home > slot
+                    : home <= freed && home > slot;
+            if (canMove) {
+                slotIds[freed] = slotIds[slot];
+                slotEntries[freed] = slotEntries[slot];
+                freed = slot;
+            }
+        }
+        slotEntries[freed] = 0;
+    }
+
+    /**
+     * Fills the freed entry with the last one, so the entries stay dense.
+     */
+    private void moveLastTo(int freed) {
+        int last = size - 1;
+        if (freed != last) {
+            ids[freed] = ids[last];
+            states[freed] = states[last];
+            documents[freed] = documents[last];
+            printers[freed] = printers[last];
+            listeners[freed] = listeners[last];
+            System.arraycopy(stamps, last * STAMPS, stamps, freed * STAMPS, STAMPS);
+            estimates[freed] = estimates[last];
+            slotEntries[slotOf(ids[freed])] = freed + 1;
+        }
+        documents[last] = null;
+        listeners[last] = null;
+        size = last;
+    }
+
+    private void growSlots() {
+        allocateSlots(slotIds.length * 2);
+        for (int entry = 0; entry < size; entry++) {
+            int slot = home(ids[entry]);
+            while (slotEntries[slot] != 0) {
+                slot = next(slot);
+            }
+            slotIds[slot] = ids[entry];
+            slotEntries[slot] = entry + 1;
+        }
+    }
+
+    private void growEntries() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        states = Arrays.copyOf(states, capacity);
+        documents = Arrays.copyOf(documents, capacity);
+        printers = Arrays.copyOf(printers, capacity);
+        listeners = Arrays.copyOf(listeners, capacity);
+        stamps = Arrays.copyOf(stamps, capacity * STAMPS);
+        estimates = Arrays.copyOf(estimates, capacity);
+    }
+
+    private int home(long id) {
+        // Fibonacci hashing, sequential ids are spread over the whole table
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    private int next(int slot) {
+        return (slot + 1) & (slotIds.length - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "JobTable{size=" + size + ", states=" + Arrays.toString(stateCounts) + '}';
+    }
+}
@@ -0,0 +1,98 @@
+package ru.sherb.actors;
+
+import ru.sherb.printer.PrintStatistics;
+
+import java.time.Duration;
+
+/**
+ * Running aggregates of millisecond durations with a log-linear histogram for percentiles.
+ * <p>
+ * Values below 16 have exact buckets, every next power of two range is split into 8 buckets,
+ * so the histogram has a fixed size and both recording and reading a snapshot take constant time.
+ * Not thread safe, it is owned by the dispatcher actor.
+ */
+final class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int LINEAR_BITS = 4;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = LINEAR_BUCKETS + (63 - LINEAR_BITS) * SUB_BUCKETS;
+
+    private final long[] buckets = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    private PrintStatistics snapshot = PrintStatistics.EMPTY;
+    private boolean snapshotIsStale;
+
+    void record(long millis) {
+        long value = Math.max(0, millis);
+        buckets[bucket(value)] += 1;
+        count += 1;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        snapshotIsStale = true;
+    }
+
+    long count() {
+        return count;
+    }
+
+    Duration average() {
+        return count == 0 ? Duration.ZERO : Duration.ofMillis(Math.round((double) sum / count));
+    }
+
+    /**
+     * @return cached snapshot, it is rebuilt only after new values were recorded
+     */
+    PrintStatistics snapshot() {
+        if (snapshotIsStale) {
+            snapshot = new PrintStatistics(
+                    count,
+                    Duration.ofMillis(sum),
+                    Duration.ofMillis(min),
+                    Duration.ofMillis(max),
+                    average(),
+                    Duration.ofMillis(percentile(0.50)),
+                    Duration.ofMillis(percentile(0.95)),
+                    Duration.ofMillis(percentile(0.99)));
+            snapshotIsStale = false;
+        }
+        return snapshot;
+    }
+
+    private long percentile(double quantile) {
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, upperBound(i)));
+            }
+        }
+        return max;
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (msb - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int msb = LINEAR_BITS + (bucket - LINEAR_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (msb - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + subBucket) * width + width - 1;
+    }
+}
@@ -0,0 +1,23 @@
+package ru.sherb.actors;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Distribution of the time jobs spent in one state. Percentiles are approximate, their relative error
+ * is below 12.5%.
+ */
+@Value
+public class LatencySnapshot {
+
+    public static final LatencySnapshot EMPTY = new LatencySnapshot(
+            0, Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+
+    long count;
+    Duration average;
+    Duration p50;
+    Duration p99;
+    Duration p999;
+    Duration max;
+}
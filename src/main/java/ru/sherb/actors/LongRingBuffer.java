@@ -0,0 +1,72 @@
+package ru.sherb.actors;
+
+import java.util.NoSuchElementException;
+import java.util.function.LongPredicate;
+
+/**
+ * First in first out queue of primitive longs in a ring that doubles when it is full, so queued ids are not
+ * boxed. Not thread safe.
+ */
+final class LongRingBuffer {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // the length is a power of two, so an index wraps by a mask
+    private long[] elements = new long[MIN_CAPACITY];
+    private int head;
+    private int size;
+
+    void add(long value) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) & (elements.length - 1)] = value;
+        size += 1;
+    }
+
+    /**
+     * @throws NoSuchElementException if the buffer is empty
+     */
+    long poll() {
+        if (size == 0) {
+            throw new NoSuchElementException("the buffer is empty");
+        }
+        long value = elements[head];
+        head = (head + 1) & (elements.length - 1);
+        size -= 1;
+        return value;
+    }
+
+    /**
+     * Removes the matching values, the others keep their order.
+     */
+    void removeIf(LongPredicate filter) {
+        int mask = elements.length - 1;
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            long value = elements[(head + i) & mask];
+            if (!filter.test(value)) {
+                elements[(head + kept) & mask] = value;
+                kept += 1;
+            }
+        }
+        size = kept;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void grow() {
+        var grown = new long[elements.length * 2];
+        int first = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, grown, 0, first);
+        System.arraycopy(elements, 0, grown, first, size - first);
+        elements = grown;
+        head = 0;
+    }
+}
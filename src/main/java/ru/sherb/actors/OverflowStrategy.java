@@ -0,0 +1,23 @@
+package ru.sherb.actors;
+
+/**
+ * What the dispatcher does with a document that does not fit into {@link PrintDispatcherSettings#getCapacity()}.
+ */
+public enum OverflowStrategy {
+
+    /**
+     * The new document is not accepted.
+     */
+    REJECT,
+
+    /**
+     * The oldest documents that are not printing yet are dropped to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * The new document waits outside the queue until printed documents free the room, producers are
+     * acknowledged only then.
+     */
+    DEFER
+}
@@ -0,0 +1,112 @@
+package ru.sherb.actors;
+
+import ru.sherb.printer.PaperSize;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Drains runs of documents of the same paper size to avoid media changeover.
+ * <p>
+ * A run continues while there are documents of the current size, but not longer than {@code maxRun}
+ * documents if other sizes are waiting. The next run takes the size whose first document has waited
+ * the longest by {@link QueuedDocument#enqueuedAt()}, so every size is served after at most {@code maxRun}
+ * documents of each other size.
+ * Documents of a size are kept by id in the order of arrival, so a removal by id does not scan, and a size
+ * is forgotten when its last document leaves the queue.
+ */
+final class PaperSizeBatchingQueue implements PrintQueue {
+
+    private final int maxRun;
+
+    private final Map<PaperSize, LinkedHashMap<Long, QueuedDocument>> bySize = new HashMap<>();
+    private final Map<Long, QueuedDocument> byId = new HashMap<>();
+    private PaperSize current;
+    private int run;
+
+    PaperSizeBatchingQueue(int maxRun) {
+        this.maxRun = maxRun;
+    }
+
+    @Override
+    public void add(QueuedDocument document) {
+        bySize.computeIfAbsent(document.document().size(), __ -> new LinkedHashMap<>()).put(document.id(), document);
+        byId.put(document.id(), document);
+    }
+
+    @Override
+    public QueuedDocument poll() {
+        if (byId.isEmpty()) {
+            return null;
+        }
+
+        var queue = bySize.get(current);
+        boolean runIsOver = queue == null || (run >= maxRun && queue.size() < byId.size());
+        if (runIsOver) {
+            var next = longestWaiting(run >= maxRun ? current : null);
+            if (!next.equals(current)) {
+                current = next;
+                run = 0;
+            }
+            queue = bySize.get(next);
+        }
+
+        run += 1;
+        var first = queue.values().iterator();
+        var next = first.next();
+        first.remove();
+        byId.remove(next.id());
+        if (queue.isEmpty()) {
+            bySize.remove(current);
+        }
+        return next;
+    }
+
+    @Override
+    public boolean remove(long id) {
+        var document = byId.remove(id);
+        if (document == null) {
+            return false;
+        }
+        var size = document.document().size();
+        var queue = bySize.get(size);
+        queue.remove(id);
+        if (queue.isEmpty()) {
+            bySize.remove(size);
+        }
+        return true;
+    }
+
+    /**
+     * @param excluded size which is skipped if there are any other
+     */
+    private PaperSize longestWaiting(PaperSize excluded) {
+        PaperSize result = null;
+        QueuedDocument resultFirst = null;
+        for (var entry : bySize.entrySet()) {
+            if (entry.getKey().equals(excluded)) {
+                continue;
+            }
+            var first = entry.getValue().values().iterator().next();
+            if (result == null || waitedLonger(first, resultFirst)) {
+                result = entry.getKey();
+                resultFirst = first;
+            }
+        }
+        return result != null ? result : excluded;
+    }
+
+    /**
+     * Ids order the documents of one producer only, so they decide only between documents queued at once.
+     */
+    private static boolean waitedLonger(QueuedDocument document, QueuedDocument other) {
+        long difference = document.enqueuedAt() - other.enqueuedAt();
+        return difference < 0 || (difference == 0 && document.id() < other.id());
+    }
+
+    @Override
+    public int size() {
+        return byId.size();
+    }
+}
@@ -0,0 +1,47 @@
+package ru.sherb.actors;
+
+import ru.sherb.printer.ISOPaperSizes;
+import ru.sherb.printer.PaperSize;
+import ru.sherb.printer.Printer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Numbers of the printers of a pool which {@link Printer#supports(PaperSize) support} a paper size.
+ * <p>
+ * Computed once per size: ISO sizes up front, other sizes on their first lookup, so routing a document
+ * is a single map lookup. Thread safe, it is shared by the dispatcher and its facades.
+ */
+final class PaperSizeIndex {
+
+    private final List<? extends Printer> printers;
+    private final Map<PaperSize, int[]> capablePrinters = new ConcurrentHashMap<>();
+
+    PaperSizeIndex(List<? extends Printer> printers) {
+        this.printers = List.copyOf(printers);
+        for (ISOPaperSizes size : ISOPaperSizes.values()) {
+            capablePrinters.put(size, findCapable(size));
+        }
+    }
+
+    /**
+     * @return numbers of the printers in ascending order, empty if no printer supports the size
+     */
+    int[] printersFor(PaperSize size) {
+        var result = capablePrinters.get(size);
+        return result != null ? result : capablePrinters.computeIfAbsent(size, this::findCapable);
+    }
+
+    boolean isSupported(PaperSize size) {
+        return printersFor(size).length > 0;
+    }
+
+    private int[] findCapable(PaperSize size) {
+        return IntStream.range(0, printers.size())
+                .filter(i -> printers.get(i).supports(size))
+                .toArray();
+    }
+}
@@ -1,17 +1,28 @@
 package ru.sherb.actors;
 
+import akka.actor.typed.ActorRef;
 import akka.actor.typed.ActorSystem;
-import akka.actor.typed.javadsl.AskPattern;
+import akka.actor.typed.Props;
+import akka.actor.typed.Scheduler;
+import akka.actor.typed.javadsl.ActorContext;
 import ru.sherb.printer.PrintDispatcher;
+import ru.sherb.printer.PrintJob;
+import ru.sherb.printer.PrintStatistics;
+import ru.sherb.printer.PrintedOrder;
 import ru.sherb.printer.Printable;
 import ru.sherb.printer.Printer;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 /**
  * @author maksim
@@ -19,83 +30,260 @@ import java.util.concurrent.ExecutionException;
  */
 public class PrintDispatchActorFacade implements PrintDispatcher {
 
+    private static final AtomicLong DISPATCHER_NUMBER = new AtomicLong();
+
     public static PrintDispatchActorFacade start(Printer printer) {
-        var system = ActorSystem.create(PrintDispatcherImpl.create(printer), "dispatcher");
+        return start(List.of(printer));
+    }
+
+    /**
+     * Starts a dispatcher that keeps all the given printers busy. Printers are numbered by their position
+     * in the list, the numbers are used by {@link #cancelCurrent(int)} and {@link #stopPrint(int)}.
+     */
+    public static PrintDispatchActorFacade start(List<? extends Printer> printers) {
+        return start(printers, PrintDispatcherSettings.defaults());
+    }
+
+    public static PrintDispatchActorFacade start(List<? extends Printer> printers, PrintDispatcherSettings settings) {
+        var metrics = new DispatcherMetrics(printers.size());
+        var system = ActorSystem.create(PrintDispatcherImpl.create(printers, settings, metrics), "dispatcher");
+        var async = new AsyncPrintDispatchActorFacade(
+                system, system.scheduler(), settings, new PaperSizeIndex(printers), metrics);
+
+        return new PrintDispatchActorFacade(async, system::terminate);
+    }
+
+    /**
+     * Starts a dispatcher inside an existing actor system, so many dispatchers share its threads, scheduler
+     * and config. {@link #stop()} stops only this dispatcher, the system is owned by the caller.
+     * <p>
+     * Printers of all the dispatchers print on the blocking dispatcher of the system, so its pool limits
+     * how many documents are printed at once.
+     */
+    public static PrintDispatchActorFacade start(ActorSystem<?> system,
+                                                 List<? extends Printer> printers,
+                                                 PrintDispatcherSettings settings) {
+        var metrics = new DispatcherMetrics(printers.size());
+        var dispatcher = system.systemActorOf(
+                PrintDispatcherImpl.create(printers, settings, metrics), nextName(), Props.empty());
+        return start(dispatcher, system.scheduler(), printers, settings, metrics);
+    }
 
-        return new PrintDispatchActorFacade(system);
+    /**
+     * Starts a dispatcher as a child of the given actor, it is stopped together with the parent or by
+     * {@link #stop()}. The facade may be used outside the actor, its blocking methods must not be called
+     * from the actor itself, use {@link #async()} there.
+     */
+    public static PrintDispatchActorFacade start(ActorContext<?> context,
+                                                 List<? extends Printer> printers,
+                                                 PrintDispatcherSettings settings) {
+        var metrics = new DispatcherMetrics(printers.size());
+        var dispatcher = context.spawn(PrintDispatcherImpl.create(printers, settings, metrics), nextName());
+        return start(dispatcher, context.getSystem().scheduler(), printers, settings, metrics);
     }
 
-    private final ActorSystem<PrintDispatcherImpl.Command> dispatcher;
+    private static PrintDispatchActorFacade start(ActorRef<PrintDispatcherImpl.Command> dispatcher,
+                                                  Scheduler scheduler,
+                                                  List<? extends Printer> printers,
+                                                  PrintDispatcherSettings settings,
+                                                  DispatcherMetrics metrics) {
+        var async = new AsyncPrintDispatchActorFacade(
+                dispatcher, scheduler, settings, new PaperSizeIndex(printers), metrics);
 
-    private PrintDispatchActorFacade(ActorSystem<PrintDispatcherImpl.Command> dispatcher) {
-        this.dispatcher = dispatcher;
+        return new PrintDispatchActorFacade(async, () -> dispatcher.tell(new PrintDispatcherImpl.Shutdown()));
+    }
+
+    private static String nextName() {
+        return "dispatcher-" + DISPATCHER_NUMBER.incrementAndGet();
+    }
+
+    private final AsyncPrintDispatchActorFacade async;
+    private final Runnable onStop;
+
+    PrintDispatchActorFacade(AsyncPrintDispatchActorFacade async, Runnable onStop) {
+        this.async = async;
+        this.onStop = onStop;
+    }
+
+    /**
+     * @return non-blocking view of this dispatcher, it waits for replies up to
+     * {@link PrintDispatcherSettings#getAskTimeout()}
+     */
+    public AsyncPrintDispatchActorFacade async() {
+        return async;
     }
 
     @Override
-    public void addToPrint(Printable document) {
-        dispatcher.tell(new PrintDispatcherImpl.AddToPrint(document));
+    public PrintJob addToPrint(Printable document) {
+        var job = async.newJob(document);
+        return awaitAdmission(job != null ? async.admit(job) : async.addToPrint(document), job);
+    }
+
+    @Override
+    public List<PrintJob> addToPrint(Collection<? extends Printable> documents) {
+        var jobs = async.newJobs(documents);
+        return awaitAdmission(jobs != null ? async.admit(jobs) : async.addToPrint(documents), jobs);
+    }
+
+    /**
+     * A deferred document stays in line after the ask timeout, so only the rejections are reported and the
+     * handles given before the ask are returned. A dispatcher that gives the handles itself may have
+     * accepted the documents or not, that is reported as well.
+     */
+    private static <T> T awaitAdmission(CompletionStage<T> admission, T handles) {
+        try {
+            return admission.toCompletableFuture().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return orFail(handles, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                throw (RejectedExecutionException) e.getCause();
+            }
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) e.getCause();
+            }
+            return orFail(handles, e.getCause());
+        }
+    }
+
+    private static <T> T orFail(T handles, Throwable cause) {
+        if (handles == null) {
+            throw new CompletionException("The dispatcher did not answer whether the documents are accepted", cause);
+        }
+        return handles;
     }
 
     @Override
     public void cancelCurrent() {
-        dispatcher.tell(new PrintDispatcherImpl.CancelCurrentPrint());
+        async.cancelCurrent();
+    }
+
+    public void cancelCurrent(int printer) {
+        async.cancelCurrent(printer);
+    }
+
+    @Override
+    public boolean cancel(PrintJob job) {
+        return await(async.cancel(job), false);
+    }
+
+    /**
+     * @see AsyncPrintDispatchActorFacade#cancel(Collection)
+     */
+    public int cancel(Collection<PrintJob> jobs) {
+        return await(async.cancel(jobs), 0);
+    }
+
+    /**
+     * @see AsyncPrintDispatchActorFacade#cancel(Predicate)
+     */
+    @Override
+    public int cancel(Predicate<Printable> filter) {
+        return await(async.cancel(filter), 0);
+    }
+
+    @Override
+    public int cancelAllQueued() {
+        return await(async.cancelAllQueued(), 0);
     }
 
     @Override
     public List<Printable> stopPrint() {
-        var result = AskPattern.ask(
-                dispatcher,
-                PrintDispatcherImpl.StopPrint::new,
-                Duration.ofSeconds(1),
-                dispatcher.scheduler());
+        return await(async.stopPrint(), Collections.emptyList());
+    }
 
-        try {
-            return result.toCompletableFuture().get().getDocuments();
-        } catch (InterruptedException | ExecutionException ignored) {
-            return Collections.emptyList();
-        }
+    /**
+     * Stops only one printer of the pool, the rest continue printing.
+     *
+     * @return documents that were sent to the stopped printer, but not printed
+     */
+    public List<Printable> stopPrint(int printer) {
+        return await(async.stopPrint(printer), Collections.emptyList());
     }
 
     @Override
     public List<Printable> listPrinted(Comparator<Printable> customComparator) {
-        CompletionStage<PrintDispatcherImpl.PrintedDocuments> result = AskPattern.ask(
-                dispatcher,
-                replyTo -> new PrintDispatcherImpl.GetPrintedList(replyTo, customComparator),
-                Duration.ofSeconds(1),
-                dispatcher.scheduler());
+        return listPrinted(customComparator, 0, Integer.MAX_VALUE);
+    }
 
-        try {
-            return result.toCompletableFuture().get().getDocuments();
-        } catch (InterruptedException | ExecutionException ignored) {
-            return Collections.emptyList();
-        }
+    @Override
+    public List<Printable> listPrinted(Comparator<Printable> customComparator, int offset, int limit) {
+        return await(async.listPrinted(customComparator, offset, limit), Collections.emptyList());
+    }
+
+    @Override
+    public List<Printable> listPrinted(PrintedOrder order, int offset, int limit) {
+        return await(async.listPrinted(order, offset, limit), Collections.emptyList());
     }
 
     @Override
     public Duration avgPrintedTime() {
-        var result = AskPattern.ask(
-                dispatcher,
-                PrintDispatcherImpl.GetAvgPrintedTime::new,
-                Duration.ofSeconds(1),
-                dispatcher.scheduler());
+        return await(async.avgPrintedTime(), Duration.ZERO);
+    }
 
+    @Override
+    public PrintStatistics stats() {
+        return await(async.stats(), PrintStatistics.EMPTY);
+    }
+
+    @Override
+    public int queueDepth() {
+        return await(async.queueDepth(), 0);
+    }
+
+    /**
+     * @return {@code null} if the dispatcher does not reply in time
+     * @see AsyncPrintDispatchActorFacade#executorStats()
+     */
+    public ExecutorStatistics executorStats() {
+        return await(async.executorStats(), null);
+    }
+
+    /**
+     * @see AsyncPrintDispatchActorFacade#printerStats()
+     */
+    public List<PrinterStatistics> printerStats() {
+        return await(async.printerStats(), Collections.emptyList());
+    }
+
+    /**
+     * @see AsyncPrintDispatchActorFacade#estimates()
+     */
+    public List<JobEstimate> estimates() {
+        return await(async.estimates(), Collections.emptyList());
+    }
+
+    /**
+     * @see AsyncPrintDispatchActorFacade#metrics()
+     */
+    public DispatcherMetricsSnapshot metrics() {
+        return async.metrics();
+    }
+
+    /**
+     * Blocking calls keep their contract of an empty result on failure, use {@link #async()} to see the error.
+     */
+    private static <T> T await(CompletionStage<T> result, T fallback) {
         try {
-            return result.toCompletableFuture().get().getValue();
-        } catch (InterruptedException | ExecutionException ignored) {
-            return Duration.ZERO;
+            return result.toCompletableFuture().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        } catch (ExecutionException ignored) {
+            return fallback;
         }
     }
 
     public void stop() {
-        dispatcher.terminate();
+        onStop.run();
     }
 
     void waitForAllComplete() throws ExecutionException, InterruptedException {
-        AskPattern.ask(
-                dispatcher,
-                PrintDispatcherImpl.NotifyAfterAllComplete::new,
-                Duration.ofSeconds(1),
-                dispatcher.scheduler()
-        ).toCompletableFuture().get();
+        waitForAllComplete(Duration.ofSeconds(1));
+    }
+
+    void waitForAllComplete(Duration timeout) throws ExecutionException, InterruptedException {
+        async.allComplete(timeout).toCompletableFuture().get();
     }
 }
@@ -2,22 +2,32 @@ package ru.sherb.actors;
 
 import akka.actor.typed.ActorRef;
 import akka.actor.typed.Behavior;
+import akka.actor.typed.PostStop;
 import akka.actor.typed.javadsl.AbstractBehavior;
 import akka.actor.typed.javadsl.ActorContext;
 import akka.actor.typed.javadsl.Behaviors;
 import akka.actor.typed.javadsl.Receive;
 import lombok.Value;
+import ru.sherb.printer.PrintResult;
+import ru.sherb.printer.PrintStatistics;
+import ru.sherb.printer.PrintedOrder;
 import ru.sherb.printer.Printable;
 import ru.sherb.printer.Printer;
 
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Predicate;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * @author maksim
@@ -28,9 +38,65 @@ public class PrintDispatcherImpl extends AbstractBehavior<PrintDispatcherImpl.Co
     //region Public interface
     public interface Command { }
 
+    /**
+     * Job id of a document that gets its id from the dispatcher, it is sent back in the {@link Admission}.
+     */
+    public static final long NO_ID = Long.MIN_VALUE;
+
+    /**
+     * {@code id} is the job id the producer gave the document, unique in the dispatcher, or {@link #NO_ID}.
+     * Both {@code replyTo} and {@code resultTo} are optional, without them a rejected document is only logged.
+     */
     @Value
     public static class AddToPrint implements Command {
+        long id;
         Printable document;
+        ActorRef<Admission> replyTo;
+        /**
+         * Gets the {@link PrintResult} of the document when it is printed, cancelled or rejected.
+         */
+        ActorRef<PrintResult> resultTo;
+    }
+
+    /**
+     * The batch is accepted or rejected as a whole, its documents get consecutive job ids from {@code firstId},
+     * or from the dispatcher with {@link #NO_ID}.
+     */
+    @Value
+    public static class AddAllToPrint implements Command {
+        long firstId;
+        List<Printable> documents;
+        ActorRef<Admission> replyTo;
+    }
+
+    /**
+     * Reply to {@link AddToPrint} and {@link AddAllToPrint}, with {@link OverflowStrategy#DEFER} it is sent
+     * only when the documents get into the queue.
+     */
+    @Value
+    public static class Admission {
+        Verdict verdict;
+        /**
+         * Job id of the accepted document, the first one of a batch.
+         */
+        long firstId;
+
+        public boolean isAccepted() {
+            return verdict == Verdict.ACCEPTED;
+        }
+    }
+
+    public enum Verdict {
+        ACCEPTED,
+        /**
+         * The documents do not fit into the queue, or the dispatcher is stopped.
+         */
+        QUEUE_FULL,
+        /**
+         * No running printer supports the paper size of a document, the printer may be stopped after the
+         * producer checked the size.
+         */
+        UNSUPPORTED_PAPER_SIZE
     }
 
     @Value
@@ -43,11 +109,62 @@ public class PrintDispatcherImpl extends AbstractBehavior<PrintDispatcherImpl.Co
     @Value
     public static class CancelCurrentPrint implements Command { }
 
+    @Value
+    public static class CancelPrinterCurrentPrint implements Command {
+        int printer;
+    }
+
+    /**
+     * Cancels jobs by the ids of their {@link ru.sherb.printer.PrintJob}s. Not yet printed jobs are released
+     * at once, printing ones are stopped. {@code replyTo} is optional.
+     */
+    @Value
+    public static class CancelJobs implements Command {
+        long[] ids;
+        ActorRef<Cancelled> replyTo;
+    }
+
+    /**
+     * Cancels the jobs whose documents match, like {@link CancelJobs}. The filter has no binary form, so
+     * the command is not sent to another node.
+     */
+    @Value
+    public static class CancelMatching implements Command {
+        Predicate<Printable> filter;
+        ActorRef<Cancelled> replyTo;
+    }
+
+    /**
+     * Cancels the jobs that are not printing yet, deferred documents are not jobs yet and stay in line.
+     */
+    @Value
+    public static class CancelAllQueued implements Command {
+        ActorRef<Cancelled> replyTo;
+    }
+
+    @Value
+    public static class Cancelled {
+        int count;
+    }
+
     @Value
     public static class StopPrint implements Command {
         ActorRef<NotPrintedDocuments> replyTo;
     }
 
+    /**
+     * Stops the dispatcher with its printers, not printed documents are dropped, or left in the journal.
+     * Used when the dispatcher lives in a shared actor system, otherwise the system is terminated instead.
+     */
+    @Value
+    public static class Shutdown implements Command { }
+
+    @Value
+    public static class StopPrinter implements Command {
+        int printer;
+        ActorRef<NotPrintedDocuments> replyTo;
+    }
+
     @Value
     public static class NotPrintedDocuments {
         List<Printable> documents;
@@ -57,6 +174,16 @@ public class PrintDispatcherImpl extends AbstractBehavior<PrintDispatcherImpl.Co
     public static class GetPrintedList implements Command {
         ActorRef<PrintedDocuments> replyTo;
         Comparator<Printable> comparator;
+        int offset;
+        int limit;
+    }
+
+    @Value
+    public static class GetPrintedPage implements Command {
+        ActorRef<PrintedDocuments> replyTo;
+        PrintedOrder order;
+        int offset;
+        int limit;
     }
 
     @Value
@@ -73,6 +200,52 @@ public class PrintDispatcherImpl extends AbstractBehavior<PrintDispatcherImpl.Co
     public static class AvgPrintedTime {
         Duration value;
     }
+
+    @Value
+    public static class GetStats implements Command {
+        ActorRef<PrintStatistics> replyTo;
+    }
+
+    @Value
+    public static class GetQueueDepth implements Command {
+        ActorRef<QueueDepth> replyTo;
+    }
+
+    /**
+     * Accepted but not yet printed documents, including deferred ones.
+     */
+    @Value
+    public static class QueueDepth {
+        int value;
+    }
+
+    @Value
+    public static class GetExecutorStats implements Command {
+        ActorRef<ExecutorStatistics> replyTo;
+    }
+
+    @Value
+    public static class GetJobEstimates implements Command {
+        ActorRef<JobEstimates> replyTo;
+    }
+
+    /**
+     * Not yet printed jobs by their expected completion, deferred documents are not there.
+     */
+    @Value
+    public static class JobEstimates {
+        List<JobEstimate> jobs;
+    }
+
+    @Value
+    public static class GetPrinterStats implements Command {
+        ActorRef<PrinterStats> replyTo;
+    }
+
+    @Value
+    public static class PrinterStats {
+        List<PrinterStatistics> printers;
+    }
     //endregion
 
     //region Private messages
@@ -80,16 +253,25 @@ public class PrintDispatcherImpl extends AbstractBehavior<PrintDispatcherImpl.Co
     @Value
     static class AddToQueueDocument implements Command {
         long id;
+        long queuedAt;
+    }
+
+    @Value
+    static class AddAllToQueueDocuments implements Command {
+        long[] ids;
+        long queuedAt;
     }
 
     @Value
     static class AddToProgressDocument implements Command {
         long id;
+        long startedAt;
     }
 
     @Value
     static class AddToCompleteDocument implements Command {
         long id;
+        long finishedAt;
     }
 
     @Value
@@ -97,81 +279,679 @@ public class PrintDispatcherImpl extends AbstractBehavior<PrintDispatcherImpl.Co
         long id;
     }
 
+    private static class FlushJournal implements Command { }
+
     //endregion
 
     public static Behavior<Command> create(Printer printer) {
-        return Behaviors.setup(param -> new PrintDispatcherImpl(param, printer));
+        return create(List.of(printer));
     }
 
-    private final ActorRef<PrinterImpl.Command> printer;
+    public static Behavior<Command> create(List<? extends Printer> printers) {
+        return create(printers, PrintDispatcherSettings.defaults());
+    }
 
-    private final Map<Long, Printable> inWaiting  = new HashMap<>();
-    private final Map<Long, Printable> inQueue    = new HashMap<>();
-    private final Map<Long, Printable> inProgress = new HashMap<>();
-    private final Map<Long, Printable> inComplete = new HashMap<>();
+    public static Behavior<Command> create(List<? extends Printer> printers, PrintDispatcherSettings settings) {
+        return create(printers, settings, new DispatcherMetrics(printers.size()));
+    }
+
+    /**
+     * @param metrics written by the dispatcher, so its owner reads them without asking the dispatcher
+     */
+    static Behavior<Command> create(List<? extends Printer> printers,
+                                    PrintDispatcherSettings settings,
+                                    DispatcherMetrics metrics) {
+        if (printers.isEmpty()) {
+            throw new IllegalArgumentException("at least one printer is required");
+        }
+        if (settings.getCapacity() < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + settings.getCapacity());
+        }
+        return Behaviors.setup(param -> {
+            // opened by the started actor and closed in PostStop, a behavior that is never spawned holds nothing
+            var journal = openJournal(settings.getJournalDirectory());
+            try {
+                return new PrintDispatcherImpl(param, printers, settings, journal, metrics);
+            } catch (RuntimeException e) {
+                if (journal != null) {
+                    try {
+                        journal.close();
+                    } catch (IOException suppressed) {
+                        e.addSuppressed(suppressed);
+                    }
+                }
+                throw e;
+            }
+        });
+    }
+
+    private static JobJournal openJournal(Path directory) {
+        if (directory == null) {
+            return null;
+        }
+        try {
+            return JobJournal.open(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not open the journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Printer pool, index in the list is the printer number. Stopped printers are replaced by {@code null}
+     * so the numbers of the others do not shift.
+     */
+    private final List<ActorRef<PrinterImpl.Command>> printers;
+    private final ActorRef<PrinterImpl.PrintEvent> printEvents;
+    private final int[] printerLoad;
+    // sum of the estimated print times of the jobs of every printer
+    private final long[] printerBacklog;
+    private final PrintTimeEstimator[] estimators;
+    private final PaperSizeIndex paperSizes;
+    private final InstrumentedExecutor printerExecutor;
+    private int alivePrinters;
+
+    private final JobTable jobs;
+    private JobJournal journal;
+    private final Duration journalFlushInterval;
+    private boolean journalFlushScheduled;
+    private final int capacity;
+    private final OverflowStrategy overflowStrategy;
+
+    // AddToPrint and AddAllToPrint commands waiting for room in the queue
+    private final ArrayDeque<Command> deferred = new ArrayDeque<>();
+    private int deferredDocuments;
+
+    // ids of the jobs in the order of arrival, kept only to drop the oldest ones; ids of the jobs that are
+    // printing or gone are skipped by the drop or cleared when they outnumber the live ones
+    private final LongRingBuffer arrivals;
+
+    private final CompletedHistory printed;
+
+    // WAITING jobs of the metrics are Print messages in the mailboxes of the printers
+    private final DispatcherMetrics metrics;
+    private ObjectName metricsName;
+
+    // over every printed document, including evicted from the history
+    private final LatencyHistogram printTime = new LatencyHistogram();
+
+    // measured by the printers, the stamps of a job are kept in the job table until it is printed
+    private final PrinterTimings printerTimings;
 
     private final List<ActorRef<AllDocumentsArePrintedEvent>> printCompleteListeners = new ArrayList<>();
 
-    private long docIdIncrement = Long.MIN_VALUE;
+    // ids for the documents sent with NO_ID
+    private long docIdIncrement = NO_ID + 1;
 
-    public PrintDispatcherImpl(ActorContext<Command> context, Printer printer) {
+    PrintDispatcherImpl(ActorContext<Command> context,
+                        List<? extends Printer> printers,
+                        PrintDispatcherSettings settings,
+                        JobJournal journal,
+                        DispatcherMetrics metrics) {
         super(context);
-        this.printer = context.spawn(PrinterImpl.create(printer), "printer");
+        this.journal = journal;
+        this.jobs = journal != null ? journal.jobs() : new JobTable();
+        this.metrics = metrics;
+        this.jobs.observe(metrics);
+        if (settings.isJmxEnabled()) {
+            this.metricsName = registerMetrics(context, metrics);
+        }
+        this.journalFlushInterval = settings.getJournalFlushInterval();
+        this.printed = new CompletedHistory(settings.getHistoryRetention());
+        this.capacity = settings.getCapacity();
+        this.overflowStrategy = settings.getOverflowStrategy();
+        this.arrivals = overflowStrategy == OverflowStrategy.DROP_OLDEST ? new LongRingBuffer() : null;
+        this.printEvents = context.messageAdapter(PrinterImpl.PrintEvent.class, PrintDispatcherImpl::toCommand);
+        this.printerExecutor = settings.getPrinterExecutor().start(
+                context.getSystem(),
+                context.getSystem().name() + "-" + context.getSelf().path().name(),
+                printers.size());
+        this.printers = new ArrayList<>(printers.size());
+        this.estimators = new PrintTimeEstimator[printers.size()];
+        for (int i = 0; i < printers.size(); i++) {
+            estimators[i] = new PrintTimeEstimator();
+            var printer = PrinterImpl.create(
+                    printers.get(i), settings.getSchedulingPolicy(), printerExecutor, estimators[i]);
+            this.printers.add(context.spawn(printer, "printer-" + i));
+        }
+        this.printerLoad = new int[printers.size()];
+        this.printerBacklog = new long[printers.size()];
+        this.printerTimings = new PrinterTimings(printers.size());
+        this.paperSizes = new PaperSizeIndex(printers);
+        this.alivePrinters = printers.size();
+
+        if (journal != null) {
+            this.docIdIncrement = Math.max(journal.nextId(), NO_ID + 1);
+            resubmitRestored();
+        }
+    }
+
+    /**
+     * Sends jobs restored from the journal to printers in the original order, queues of the printers are
+     * empty after a restart, so every job starts from the beginning.
+     */
+    private void resubmitRestored() {
+        long[] ids = new long[jobs.size()];
+        int[] count = {0};
+        jobs.forEach((id, state, document, printer) -> ids[count[0]++] = id);
+        Arrays.sort(ids);
+        int wasPrinting = jobs.count(JobTable.IN_PROGRESS);
+
+        for (long id : ids) {
+            var document = jobs.document(id);
+            int printer = selectPrinter(document);
+            if (printer < 0) {
+                getContext().getLog().warn("Document {} is dropped, no printer supports paper size {}",
+                        document.name(), document.size());
+                jobs.remove(id);
+                journal.done(id);
+                continue;
+            }
+            jobs.put(id, document, printer, JobTable.WAITING);
+            long estimate = assign(id, printer, document);
+            arrived(id);
+            printers.get(printer).tell(new PrinterImpl.Print(printEvents, id, document, estimate));
+        }
+        scheduleJournalFlush();
+
+        if (ids.length > 0) {
+            getContext().getLog().info("{} documents are restored from the journal, {} of them were printing",
+                    ids.length, wasPrinting);
+        }
     }
 
     @Override
     public Receive<Command> createReceive() {
         return newReceiveBuilder()
                 .onMessage(AddToPrint.class, this::onAddToPrint)
+                .onMessage(AddAllToPrint.class, this::onAddAllToPrint)
                 .onMessage(CancelCurrentPrint.class, this::onCancelCurrentPrint)
+                .onMessage(CancelPrinterCurrentPrint.class, this::onCancelPrinterCurrentPrint)
+                .onMessage(CancelJobs.class, this::onCancelJobs)
+                .onMessage(CancelMatching.class, this::onCancelMatching)
+                .onMessage(CancelAllQueued.class, this::onCancelAllQueued)
                 .onMessage(StopPrint.class, this::onStopPrint)
+                .onMessage(StopPrinter.class, this::onStopPrinter)
+                .onMessage(Shutdown.class, c -> Behaviors.stopped())
                 .onMessage(GetPrintedList.class, this::onGetPrintedList)
+                .onMessage(GetPrintedPage.class, this::onGetPrintedPage)
                 .onMessage(GetAvgPrintedTime.class, this::onGetAvgPrintedTime)
+                .onMessage(GetStats.class, this::onGetStats)
+                .onMessage(GetQueueDepth.class, this::onGetQueueDepth)
+                .onMessage(GetExecutorStats.class, this::onGetExecutorStats)
+                .onMessage(GetPrinterStats.class, this::onGetPrinterStats)
+                .onMessage(GetJobEstimates.class, this::onGetJobEstimates)
                 .onMessage(NotifyAfterAllComplete.class, this::onNotifyAfterAllComplete)
                 // inner interface
                 .onMessage(AddToQueueDocument.class, this::onAddToQueue)
+                .onMessage(AddAllToQueueDocuments.class, this::onAddAllToQueue)
                 .onMessage(AddToProgressDocument.class, this::onAddToProgress)
                 .onMessage(AddToCompleteDocument.class, this::onAddToComplete)
                 .onMessage(RemoveInProgressDocument.class, this::onRemoveInProgress)
+                .onMessage(FlushJournal.class, this::onFlushJournal)
+                .onSignal(PostStop.class, __ -> this.onPostStop())
                 .build();
     }
 
     private Behavior<Command> onAddToPrint(AddToPrint cmd) {
-        inWaiting.put(docIdIncrement, cmd.document);
-
-        var watcher = getContext().spawn(
-                PrintStatusWatcher.create(getContext().getSelf(), docIdIncrement),
-                "document-" + formatName(cmd.document.name()) + "-watcher");
+        if (isSupported(cmd) && hasRoomFor(1, cmd)) {
+            enqueue(cmd);
+        }
+        return this;
+    }
 
-        printer.tell(new PrinterImpl.Print(watcher, cmd.document));
+    /**
+     * The document must be supported by a running printer, see {@link #isSupported(Command)}.
+     */
+    private void enqueue(AddToPrint cmd) {
+        long id = cmd.id != NO_ID ? cmd.id : docIdIncrement++;
+        int selected = selectPrinter(cmd.document);
+        jobs.put(id, cmd.document, selected, JobTable.WAITING, cmd.resultTo, System.nanoTime());
+        long estimate = assign(id, selected, cmd.document);
+        arrived(id);
+        if (journal != null) {
+            journal.add(id, cmd.document);
+            scheduleJournalFlush();
+        }
+        printers.get(selected).tell(new PrinterImpl.Print(printEvents, id, cmd.document, estimate));
+        reply(cmd, Verdict.ACCEPTED, id);
+    }
 
-        docIdIncrement += 1;
+    private Behavior<Command> onAddAllToPrint(AddAllToPrint cmd) {
+        if (isSupported(cmd) && hasRoomFor(cmd.documents.size(), cmd)) {
+            enqueueAll(cmd);
+        }
         return this;
     }
 
-    private static String formatName(String docName) {
-        if (docName.length() > 35) {
-            docName = docName.substring(0, 35);
+    /**
+     * Enqueues the whole batch in one turn, every printer gets its part of the batch in one message.
+     * The documents must be supported by running printers, see {@link #isSupported(Command)}.
+     */
+    private void enqueueAll(AddAllToPrint cmd) {
+        int batchSize = cmd.documents.size();
+        long firstId = cmd.firstId != NO_ID ? cmd.firstId : docIdIncrement;
+        int[] selected = new int[batchSize];
+        long[] estimates = new long[batchSize];
+        int[] counts = new int[printers.size()];
+        long now = System.nanoTime();
+        for (int i = 0; i < batchSize; i++) {
+            int printer = selectPrinter(cmd.documents.get(i));
+            selected[i] = printer;
+            jobs.put(firstId + i, cmd.documents.get(i), printer, JobTable.WAITING, null, now);
+            estimates[i] = assign(firstId + i, printer, cmd.documents.get(i));
+            if (journal != null) {
+                journal.add(firstId + i, cmd.documents.get(i));
+            }
+            arrived(firstId + i);
+            counts[printer] += 1;
         }
-        return URLEncoder.encode(docName, StandardCharsets.UTF_8);
+        scheduleJournalFlush();
+
+        long[][] ids = new long[printers.size()][];
+        Printable[][] documents = new Printable[printers.size()][];
+        long[][] printerEstimates = new long[printers.size()][];
+        for (int printer = 0; printer < printers.size(); printer++) {
+            ids[printer] = new long[counts[printer]];
+            documents[printer] = new Printable[counts[printer]];
+            printerEstimates[printer] = new long[counts[printer]];
+            counts[printer] = 0;
+        }
+        for (int i = 0; i < batchSize; i++) {
+            int printer = selected[i];
+            ids[printer][counts[printer]] = firstId + i;
+            documents[printer][counts[printer]] = cmd.documents.get(i);
+            printerEstimates[printer][counts[printer]] = estimates[i];
+            counts[printer] += 1;
+        }
+
+        for (int printer = 0; printer < printers.size(); printer++) {
+            if (counts[printer] > 0) {
+                printers.get(printer).tell(new PrinterImpl.PrintAll(
+                        printEvents, ids[printer], documents[printer], printerEstimates[printer]));
+            }
+        }
+
+        if (cmd.firstId == NO_ID) {
+            docIdIncrement += batchSize;
+        }
+        reply(cmd, Verdict.ACCEPTED, firstId);
     }
 
+    /**
+     * Rejects the documents as a whole if no running printer supports the paper size of one of them,
+     * before any of them takes a job id or room in the queue.
+     */
+    private boolean isSupported(Command cmd) {
+        List<Printable> documents = cmd instanceof AddToPrint
+                ? List.of(((AddToPrint) cmd).document)
+                : ((AddAllToPrint) cmd).documents;
+        for (Printable document : documents) {
+            if (!hasPrinterFor(document)) {
+                getContext().getLog().warn("{} documents are rejected, no running printer supports paper size {} of {}",
+                        documents.size(), document.size(), document.name());
+                reply(cmd, Verdict.UNSUPPORTED_PAPER_SIZE, 0);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasPrinterFor(Printable document) {
+        for (int i : paperSizes.printersFor(document.size())) {
+            if (printers.get(i) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies the overflow strategy if the documents do not fit into the queue.
+     *
+     * @return {@code true} if the documents can be enqueued right now, otherwise they are already
+     * deferred or rejected
+     */
+    private boolean hasRoomFor(int count, Command cmd) {
+        // deferred documents go first, so the order of producers is kept
+        if (deferred.isEmpty() && (long) jobs.size() + count <= capacity) {
+            return true;
+        }
+        if (count > capacity) {
+            reject(count, cmd);
+            return false;
+        }
+
+        switch (overflowStrategy) {
+            case DROP_OLDEST:
+                int overflow = jobs.size() + count - capacity;
+                if (jobs.count(JobTable.WAITING) + jobs.count(JobTable.QUEUED) >= overflow) {
+                    dropOldest(overflow);
+                    return true;
+                }
+                reject(count, cmd);
+                return false;
+            case DEFER:
+                deferred.add(cmd);
+                deferredDocuments += count;
+                return false;
+            default:
+                reject(count, cmd);
+                return false;
+        }
+    }
+
+    private void reject(int count, Command cmd) {
+        metrics.rejected(count);
+        if (!reply(cmd, Verdict.QUEUE_FULL, 0)) {
+            getContext().getLog().warn("{} documents are rejected, the queue is full", count);
+        }
+    }
+
+    /**
+     * Tells the producer of {@link AddToPrint} or {@link AddAllToPrint} whether its documents are accepted.
+     *
+     * @param firstId job id of the first document, ignored for rejected ones
+     * @return {@code false} if nobody waits for the reply
+     */
+    private static boolean reply(Command cmd, Verdict verdict, long firstId) {
+        ActorRef<Admission> replyTo;
+        if (cmd instanceof AddToPrint) {
+            var add = (AddToPrint) cmd;
+            replyTo = add.replyTo;
+            if (verdict != Verdict.ACCEPTED && add.resultTo != null) {
+                add.resultTo.tell(new PrintResult(add.document, PrintResult.Status.REJECTED));
+                return true;
+            }
+        } else {
+            replyTo = ((AddAllToPrint) cmd).replyTo;
+        }
+
+        if (replyTo != null) {
+            replyTo.tell(new Admission(verdict, firstId));
+        }
+        return replyTo != null;
+    }
+
+    /**
+     * Drops the oldest documents that are not printing yet, the caller checks there are enough of them.
+     */
+    private void dropOldest(int count) {
+        while (count > 0 && !arrivals.isEmpty()) {
+            long id = arrivals.poll();
+            if (isDroppable(id)) {
+                int printer = jobs.printer(id);
+                var document = release(id, PrintResult.Status.CANCELLED);
+                metrics.dropped();
+                printers.get(printer).tell(new PrinterImpl.Discard(new long[]{id}));
+                getContext().getLog().info("Document {} is dropped, the queue is full", document.name());
+                count -= 1;
+            }
+        }
+    }
+
+    private void arrived(long id) {
+        if (arrivals == null) {
+            return;
+        }
+        arrivals.add(id);
+        if (arrivals.size() > 2 * jobs.size() + 16) {
+            arrivals.removeIf(next -> !isDroppable(next));
+        }
+    }
+
+    private boolean isDroppable(long id) {
+        byte state = jobs.state(id);
+        return state == JobTable.WAITING || state == JobTable.QUEUED;
+    }
+
+    /**
+     * @return documents of the rejected commands
+     */
+    private List<Printable> rejectDeferred() {
+        List<Printable> documents = new ArrayList<>(deferredDocuments);
+        for (Command next : deferred) {
+            if (next instanceof AddToPrint) {
+                documents.add(((AddToPrint) next).document);
+            } else {
+                documents.addAll(((AddAllToPrint) next).documents);
+            }
+            reply(next, Verdict.QUEUE_FULL, 0);
+        }
+        deferred.clear();
+        deferredDocuments = 0;
+        return documents;
+    }
+
+    private void admitDeferred() {
+        while (!deferred.isEmpty()) {
+            var next = deferred.peek();
+            int count = next instanceof AddToPrint ? 1 : ((AddAllToPrint) next).documents.size();
+            if (jobs.size() + count > capacity) {
+                return;
+            }
+
+            deferred.poll();
+            deferredDocuments -= count;
+            // a printer may have been stopped while the documents waited
+            if (!isSupported(next)) {
+                continue;
+            }
+            if (next instanceof AddToPrint) {
+                enqueue((AddToPrint) next);
+            } else {
+                enqueueAll((AddAllToPrint) next);
+            }
+        }
+    }
+
+    /**
+     * Greedy earliest completion: the document goes to the printer expected to finish it first, after the jobs
+     * it already has, by the print times the printers learned. A fast busy printer may win over a slow idle
+     * one, that keeps the makespan of the pool short. Until the printers learn anything the estimates are the
+     * declared durations, and printers with the same completion are ordered by the number of their jobs.
+     *
+     * @return the running printer that supports the paper size of the document and finishes it first;
+     * {@code -1} if there is no such printer
+     */
+    private int selectPrinter(Printable document) {
+        int selected = -1;
+        long selectedCompletion = 0;
+        for (int i : paperSizes.printersFor(document.size())) {
+            if (printers.get(i) == null) {
+                continue;
+            }
+            long completion = printerBacklog[i] + estimators[i].estimateNanos(document);
+            if (selected < 0 || completion < selectedCompletion
+                    || completion == selectedCompletion && printerLoad[i] < printerLoad[selected]) {
+                selected = i;
+                selectedCompletion = completion;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Counts the job in the load of its printer, it must be already in the job table.
+     *
+     * @return expected print time of the job on the printer
+     */
+    private long assign(long id, int printer, Printable document) {
+        long estimate = estimators[printer].estimateNanos(document);
+        jobs.estimate(id, estimate);
+        printerLoad[printer] += 1;
+        printerBacklog[printer] += estimate;
+        return estimate;
+    }
+
+    /**
+     * Forgets the job and tells its result to the listener.
+     *
+     * @return the document of the job or {@code null} if there is no such job
+     */
+    private Printable release(long id, PrintResult.Status status) {
+        return release(id, status, System.nanoTime());
+    }
+
+    /**
+     * @param now {@link System#nanoTime()} the job is done
+     */
+    private Printable release(long id, PrintResult.Status status, long now) {
+        int printer = jobs.printer(id);
+        if (printer < 0) {
+            return null;
+        }
+        printerLoad[printer] -= 1;
+        printerBacklog[printer] -= jobs.estimate(id);
+
+        var listener = jobs.listener(id);
+        var document = jobs.remove(id, now);
+        if (status == PrintResult.Status.PRINTED) {
+            metrics.printed();
+        } else {
+            metrics.cancelled();
+        }
+        if (journal != null) {
+            journal.done(id);
+            scheduleJournalFlush();
+        }
+        if (listener != null) {
+            listener.tell(new PrintResult(document, status));
+        }
+        return document;
+    }
+
+    private static Command toCommand(PrinterImpl.PrintEvent event) {
+        if (event instanceof PrinterImpl.DocumentAddedToQueue) {
+            var added = (PrinterImpl.DocumentAddedToQueue) event;
+            return new AddToQueueDocument(added.getId(), added.getQueuedAt());
+        } else if (event instanceof PrinterImpl.DocumentsAddedToQueue) {
+            var added = (PrinterImpl.DocumentsAddedToQueue) event;
+            return new AddAllToQueueDocuments(added.getIds(), added.getQueuedAt());
+        } else if (event instanceof PrinterImpl.PrintStarting) {
+            var starting = (PrinterImpl.PrintStarting) event;
+            return new AddToProgressDocument(starting.getId(), starting.getStartedAt());
+        } else if (event instanceof PrinterImpl.PrintComplete) {
+            var complete = (PrinterImpl.PrintComplete) event;
+            return new AddToCompleteDocument(complete.getId(), complete.getFinishedAt());
+        } else if (event instanceof PrinterImpl.PrintCancelled) {
+            return new RemoveInProgressDocument(((PrinterImpl.PrintCancelled) event).getId());
+        }
+        throw new IllegalArgumentException("Unknown print event: " + event);
+    }
+
+    // documents of a stopped printer are already forgotten, late events about them are ignored
+
     private Behavior<Command> onAddToQueue(AddToQueueDocument cmd) {
-        var document = this.inWaiting.remove(cmd.id);
-        this.inQueue.put(cmd.id, document);
+        jobs.move(cmd.id, JobTable.QUEUED, cmd.queuedAt);
+        return this;
+    }
+
+    private Behavior<Command> onAddAllToQueue(AddAllToQueueDocuments cmd) {
+        for (long id : cmd.ids) {
+            jobs.move(id, JobTable.QUEUED, cmd.queuedAt);
+        }
         return this;
     }
 
     private Behavior<Command> onAddToProgress(AddToProgressDocument cmd) {
-        var document = this.inQueue.remove(cmd.id);
-        this.inProgress.put(cmd.id, document);
+        if (jobs.move(cmd.id, JobTable.IN_PROGRESS, cmd.startedAt) && journal != null) {
+            journal.started(cmd.id);
+            scheduleJournalFlush();
+        }
         return this;
     }
 
+    /**
+     * Group commit: the first record after a flush schedules the next one.
+     */
+    private void scheduleJournalFlush() {
+        if (journal != null && !journalFlushScheduled) {
+            journalFlushScheduled = true;
+            getContext().scheduleOnce(journalFlushInterval, getContext().getSelf(), new FlushJournal());
+        }
+    }
+
+    private Behavior<Command> onFlushJournal(FlushJournal cmd) {
+        journalFlushScheduled = false;
+        if (journal != null) {
+            journal.flush();
+        }
+        return this;
+    }
+
+    /**
+     * Not printed documents stay in the journal, they are printed after the next start.
+     */
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            getContext().getLog().error("Can not close the journal", e);
+        }
+        journal = null;
+    }
+
+    private Behavior<Command> onPostStop() {
+        closeJournal();
+        printerExecutor.close();
+        unregisterMetrics();
+        return this;
+    }
+
+    /**
+     * Registers the metrics as {@code ru.sherb.actors:type=PrintDispatcher,name=<system>/<path>}, dispatchers
+     * of different systems with the same path, like the ones of tests, get an {@code instance} key.
+     *
+     * @return {@code null} if the MBean server refused the registration
+     */
+    private static ObjectName registerMetrics(ActorContext<Command> context, DispatcherMetrics metrics) {
+        var server = ManagementFactory.getPlatformMBeanServer();
+        var name = ObjectName.quote(context.getSystem().name() + context.getSelf().path().toStringWithoutAddress());
+        try {
+            for (int instance = 0; ; instance++) {
+                var objectName = new ObjectName("ru.sherb.actors:type=PrintDispatcher,name=" + name
+                        + (instance > 0 ? ",instance=" + instance : ""));
+                try {
+                    server.registerMBean(metrics, objectName);
+                    return objectName;
+                } catch (InstanceAlreadyExistsException ignored) {
+                    // the next instance number
+                }
+            }
+        } catch (JMException e) {
+            context.getLog().warn("Can not register the dispatcher metrics in JMX", e);
+            return null;
+        }
+    }
+
+    private void unregisterMetrics() {
+        if (metricsName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+        } catch (JMException e) {
+            getContext().getLog().warn("Can not unregister the dispatcher metrics {}", metricsName, e);
+        }
+        metricsName = null;
+    }
+
     private Behavior<Command> onAddToComplete(AddToCompleteDocument cmd) {
-        var document = this.inProgress.remove(cmd.id);
-        this.inComplete.put(cmd.id, document);
+        int printer = jobs.printer(cmd.id);
+        long queuedAt = jobs.enteredAt(cmd.id, JobTable.QUEUED);
+        long startedAt = jobs.enteredAt(cmd.id, JobTable.IN_PROGRESS);
+        var document = release(cmd.id, PrintResult.Status.PRINTED, cmd.finishedAt);
+        if (document == null) {
+            return this;
+        }
+        printerTimings.record(printer, queuedAt, startedAt, cmd.finishedAt, document.printDuration());
+        printed.add(document, System.nanoTime());
+        printTime.record(document.printDuration().toMillis());
 
+        admitDeferred();
         notifyOnComplete();
         return this;
     }
@@ -182,29 +962,179 @@ public class PrintDispatcherImpl extends AbstractBehavior<PrintDispatcherImpl.Co
             for (ActorRef<AllDocumentsArePrintedEvent> listener : printCompleteListeners) {
                 listener.tell(event);
             }
+            // every listener waits for one event, ask refs are dead after it
+            printCompleteListeners.clear();
         }
     }
 
     private Behavior<Command> onRemoveInProgress(RemoveInProgressDocument cmd) {
-        this.inProgress.remove(cmd.id);
+        release(cmd.id, PrintResult.Status.CANCELLED);
 
+        admitDeferred();
         notifyOnComplete();
         return this;
     }
 
     private Behavior<Command> onCancelCurrentPrint(CancelCurrentPrint cmd) {
-        printer.tell(new PrinterImpl.Cancel());
+        for (ActorRef<PrinterImpl.Command> printer : printers) {
+            if (printer != null) {
+                printer.tell(new PrinterImpl.Cancel());
+            }
+        }
+        return this;
+    }
+
+    private Behavior<Command> onCancelPrinterCurrentPrint(CancelPrinterCurrentPrint cmd) {
+        if (isAlivePrinter(cmd.printer)) {
+            printers.get(cmd.printer).tell(new PrinterImpl.Cancel());
+        } else {
+            getContext().getLog().warn("Cancel is ignored, printer {} is not running", cmd.printer);
+        }
+        return this;
+    }
+
+    private Behavior<Command> onCancelJobs(CancelJobs cmd) {
+        int cancelled = cancel(cmd.ids, true);
+        if (cmd.replyTo != null) {
+            cmd.replyTo.tell(new Cancelled(cancelled));
+        }
+        return this;
+    }
+
+    private Behavior<Command> onCancelMatching(CancelMatching cmd) {
+        long[] ids = new long[jobs.size()];
+        int[] count = {0};
+        jobs.forEach((id, state, document, printer) -> {
+            if (cmd.filter.test(document)) {
+                ids[count[0]++] = id;
+            }
+        });
+        cmd.replyTo.tell(new Cancelled(cancel(Arrays.copyOf(ids, count[0]), true)));
+        return this;
+    }
+
+    private Behavior<Command> onCancelAllQueued(CancelAllQueued cmd) {
+        long[] ids = new long[jobs.count(JobTable.WAITING) + jobs.count(JobTable.QUEUED)];
+        int[] count = {0};
+        jobs.forEach((id, state, document, printer) -> {
+            if (state != JobTable.IN_PROGRESS) {
+                ids[count[0]++] = id;
+            }
+        });
+        cmd.replyTo.tell(new Cancelled(cancel(ids, false)));
+        return this;
+    }
+
+    /**
+     * Releases the jobs at once, so their listeners, the load of the printers and the room in the queue do not
+     * wait for the printers. Every printer gets its part in one message and removes it from its queue by id.
+     *
+     * @param stopPrinting whether the printing jobs are stopped, otherwise they are left to finish
+     * @return number of cancelled jobs, ids of printed or unknown jobs are skipped
+     */
+    private int cancel(long[] ids, boolean stopPrinting) {
+        int[] selected = new int[ids.length];
+        int[] counts = new int[printers.size()];
+        int cancelled = 0;
+        for (int i = 0; i < ids.length; i++) {
+            int printer = jobs.printer(ids[i]);
+            if (printer < 0 || !stopPrinting && jobs.state(ids[i]) == JobTable.IN_PROGRESS) {
+                selected[i] = -1;
+                continue;
+            }
+            selected[i] = printer;
+            release(ids[i], PrintResult.Status.CANCELLED);
+            counts[printer] += 1;
+            cancelled += 1;
+        }
+        if (cancelled == 0) {
+            return 0;
+        }
+
+        long[][] byPrinter = new long[printers.size()][];
+        for (int printer = 0; printer < printers.size(); printer++) {
+            byPrinter[printer] = new long[counts[printer]];
+            counts[printer] = 0;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            int printer = selected[i];
+            if (printer >= 0) {
+                byPrinter[printer][counts[printer]++] = ids[i];
+            }
+        }
+        for (int printer = 0; printer < printers.size(); printer++) {
+            if (counts[printer] > 0) {
+                printers.get(printer).tell(stopPrinting
+                        ? new PrinterImpl.CancelJobs(byPrinter[printer])
+                        : new PrinterImpl.Discard(byPrinter[printer]));
+            }
+        }
+
+        admitDeferred();
+        notifyOnComplete();
+        return cancelled;
+    }
+
+    private boolean isAlivePrinter(int printer) {
+        return printer >= 0 && printer < printers.size() && printers.get(printer) != null;
+    }
+
+    private Behavior<Command> onStopPrinter(StopPrinter cmd) {
+        if (!isAlivePrinter(cmd.printer)) {
+            cmd.replyTo.tell(new NotPrintedDocuments(List.of()));
+            return this;
+        }
+
+        getContext().stop(printers.get(cmd.printer));
+        printers.set(cmd.printer, null);
+        alivePrinters -= 1;
+
+        long[] assigned = jobs.idsOf(cmd.printer);
+        List<Printable> notPrinted = new ArrayList<>(assigned.length);
+        for (long id : assigned) {
+            notPrinted.add(release(id, PrintResult.Status.CANCELLED));
+        }
+        printerLoad[cmd.printer] = 0;
+        printerBacklog[cmd.printer] = 0;
+        notPrinted.sort(Comparator.comparing(Printable::name));
+
+        cmd.replyTo.tell(new NotPrintedDocuments(notPrinted));
+
+        if (alivePrinters == 0) {
+            rejectDeferred();
+            closeJournal();
+            notifyOnComplete();
+            return newReadOnlyBehavior(new NotPrintedDocuments(List.of()));
+        }
+
+        admitDeferred();
+        notifyOnComplete();
         return this;
     }
 
     private Behavior<Command> onStopPrint(StopPrint cmd) {
-        getContext().stop(printer);
+        for (ActorRef<PrinterImpl.Command> printer : printers) {
+            if (printer != null) {
+                getContext().stop(printer);
+            }
+        }
 
-        List<Printable> notPrinted = new ArrayList<>(inWaiting.values());
-        notPrinted.addAll(inQueue.values());
-        notPrinted.addAll(inProgress.values());
+        List<Printable> notPrinted = new ArrayList<>(jobs.size());
+        jobs.forEach((id, state, document, printer) -> {
+            notPrinted.add(document);
+            var listener = jobs.listener(id);
+            if (listener != null) {
+                listener.tell(new PrintResult(document, PrintResult.Status.CANCELLED));
+            }
+            metrics.cancelled();
+        });
+        // the jobs leave their states, so the gauges and the busy time of the printers stop counting them
+        jobs.clear(System.nanoTime());
+        notPrinted.addAll(rejectDeferred());
         notPrinted.sort(Comparator.comparing(Printable::name));
 
+        closeJournal();
+
         var response = new NotPrintedDocuments(notPrinted);
         cmd.replyTo.tell(response);
 
@@ -213,46 +1143,154 @@ public class PrintDispatcherImpl extends AbstractBehavior<PrintDispatcherImpl.Co
 
     private Behavior<Command> newReadOnlyBehavior(NotPrintedDocuments cachedResponse) {
         return Behaviors.receive(Command.class)
+                .onMessage(AddToPrint.class, c -> {
+                    reply(c, Verdict.QUEUE_FULL, 0);
+                    return Behaviors.same();
+                })
+                .onMessage(AddAllToPrint.class, c -> {
+                    reply(c, Verdict.QUEUE_FULL, 0);
+                    return Behaviors.same();
+                })
+                .onMessage(CancelJobs.class, c -> {
+                    if (c.replyTo != null) {
+                        c.replyTo.tell(new Cancelled(0));
+                    }
+                    return Behaviors.same();
+                })
+                .onMessage(CancelMatching.class, c -> {
+                    c.replyTo.tell(new Cancelled(0));
+                    return Behaviors.same();
+                })
+                .onMessage(CancelAllQueued.class, c -> {
+                    c.replyTo.tell(new Cancelled(0));
+                    return Behaviors.same();
+                })
                 .onMessage(StopPrint.class, c -> {
                     c.replyTo.tell(cachedResponse);
                     return Behaviors.same();
                 })
+                .onMessage(Shutdown.class, c -> Behaviors.stopped())
                 .onMessage(GetPrintedList.class, c -> {
                     this.onGetPrintedList(c);
                     return Behaviors.same();
                 })
+                .onMessage(GetPrintedPage.class, c -> {
+                    this.onGetPrintedPage(c);
+                    return Behaviors.same();
+                })
                 .onMessage(GetAvgPrintedTime.class, c -> {
                     this.onGetAvgPrintedTime(c);
                     return Behaviors.same();
                 })
+                .onMessage(GetStats.class, c -> {
+                    this.onGetStats(c);
+                    return Behaviors.same();
+                })
+                .onMessage(GetQueueDepth.class, c -> {
+                    c.replyTo.tell(new QueueDepth(0));
+                    return Behaviors.same();
+                })
+                .onMessage(GetExecutorStats.class, c -> {
+                    this.onGetExecutorStats(c);
+                    return Behaviors.same();
+                })
+                .onMessage(GetPrinterStats.class, c -> {
+                    this.onGetPrinterStats(c);
+                    return Behaviors.same();
+                })
+                .onMessage(GetJobEstimates.class, c -> {
+                    c.replyTo.tell(new JobEstimates(List.of()));
+                    return Behaviors.same();
+                })
                 .onMessage(NotifyAfterAllComplete.class, c -> {
                     c.observer.tell(new AllDocumentsArePrintedEvent());
                     return Behaviors.same();
                 })
+                .onSignal(PostStop.class, __ -> this.onPostStop())
                 .build();
     }
 
     private Behavior<Command> onGetPrintedList(GetPrintedList cmd) {
-        var printed = new ArrayList<>(inComplete.values());
-        printed.sort(cmd.comparator);
+        printed.evictExpired(System.nanoTime());
+        cmd.replyTo.tell(new PrintedDocuments(printed.page(cmd.comparator, cmd.offset, cmd.limit)));
+        return this;
+    }
 
-        cmd.replyTo.tell(new PrintedDocuments(printed));
+    private Behavior<Command> onGetPrintedPage(GetPrintedPage cmd) {
+        printed.evictExpired(System.nanoTime());
+        cmd.replyTo.tell(new PrintedDocuments(printed.page(cmd.order, cmd.offset, cmd.limit)));
         return this;
     }
 
     private Behavior<Command> onGetAvgPrintedTime(GetAvgPrintedTime cmd) {
-        var average = inComplete.values().stream()
-                .mapToLong(d -> d.printDuration().toMillis())
-                .average()
-                .orElse(0);
+        cmd.replyTo.tell(new AvgPrintedTime(printTime.average()));
+        return this;
+    }
 
-        var avgWithoutNanos = Math.round(average);
+    private Behavior<Command> onGetStats(GetStats cmd) {
+        cmd.replyTo.tell(printTime.snapshot());
+        return this;
+    }
+
+    private Behavior<Command> onGetQueueDepth(GetQueueDepth cmd) {
+        cmd.replyTo.tell(new QueueDepth(jobs.size() + deferredDocuments));
+        return this;
+    }
+
+    private Behavior<Command> onGetExecutorStats(GetExecutorStats cmd) {
+        cmd.replyTo.tell(printerExecutor.snapshot());
+        return this;
+    }
+
+    private Behavior<Command> onGetPrinterStats(GetPrinterStats cmd) {
+        cmd.replyTo.tell(new PrinterStats(printerTimings.snapshot()));
+        return this;
+    }
+
+    /**
+     * Every printer is expected to finish what it prints now and then its queue in the order of arrival,
+     * with other scheduling policies the order inside a queue is an approximation.
+     */
+    private Behavior<Command> onGetJobEstimates(GetJobEstimates cmd) {
+        long now = System.nanoTime();
+        long[] ids = new long[jobs.size()];
+        int[] count = {0};
+        jobs.forEach((id, state, document, printer) -> ids[count[0]++] = id);
+        Arrays.sort(ids);
 
-        cmd.replyTo.tell(new AvgPrintedTime(Duration.ofMillis(avgWithoutNanos)));
+        // the remaining time of the current prints goes first
+        long[] ahead = new long[printers.size()];
+        for (long id : ids) {
+            if (jobs.state(id) == JobTable.IN_PROGRESS) {
+                ahead[jobs.printer(id)] += remaining(id, now);
+            }
+        }
 
+        List<JobEstimate> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            int printer = jobs.printer(id);
+            long completion;
+            if (jobs.state(id) == JobTable.IN_PROGRESS) {
+                completion = remaining(id, now);
+            } else {
+                ahead[printer] += jobs.estimate(id);
+                completion = ahead[printer];
+            }
+            result.add(new JobEstimate(
+                    jobs.document(id), printer, Duration.ofNanos(jobs.estimate(id)), Duration.ofNanos(completion)));
+        }
+        result.sort(Comparator.comparing(JobEstimate::getCompletion));
+        cmd.replyTo.tell(new JobEstimates(result));
         return this;
     }
 
+    /**
+     * @return expected time until the printing job is done, {@code 0} once it prints longer than expected
+     */
+    private long remaining(long id, long now) {
+        return Math.max(0, jobs.estimate(id) - (now - jobs.enteredAt(id, JobTable.IN_PROGRESS)));
+    }
+
     private Behavior<Command> onNotifyAfterAllComplete(NotifyAfterAllComplete cmd) {
         if (isAllDocumentArePrinted()) {
             cmd.observer.tell(new AllDocumentsArePrintedEvent());
@@ -263,6 +1301,6 @@ public class PrintDispatcherImpl extends AbstractBehavior<PrintDispatcherImpl.Co
     }
 
     private boolean isAllDocumentArePrinted() {
-        return inWaiting.isEmpty() && inQueue.isEmpty() && inProgress.isEmpty();
+        return jobs.size() == 0 && deferred.isEmpty();
     }
 }
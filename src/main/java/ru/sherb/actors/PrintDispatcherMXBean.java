@@ -0,0 +1,36 @@
+package ru.sherb.actors;
+
+/**
+ * JMX view of a dispatcher, registered as {@code ru.sherb.actors:type=PrintDispatcher,name=<system>/<actor>}
+ * when {@link PrintDispatcherSettings#isJmxEnabled()}. Times are in milliseconds.
+ */
+public interface PrintDispatcherMXBean {
+
+    int getWaitingJobs();
+
+    int getQueuedJobs();
+
+    int getInProgressJobs();
+
+    long getPrintedJobs();
+
+    long getCancelledJobs();
+
+    long getDroppedJobs();
+
+    long getRejectedJobs();
+
+    double getWaitingMillisP50();
+
+    double getWaitingMillisP99();
+
+    double getQueuedMillisP50();
+
+    double getQueuedMillisP99();
+
+    double getInProgressMillisP50();
+
+    double getInProgressMillisP99();
+
+    double[] getPrinterBusyRatios();
+}
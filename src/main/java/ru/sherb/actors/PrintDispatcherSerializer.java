@@ -0,0 +1,462 @@
+package ru.sherb.actors;
+
+import akka.actor.ExtendedActorSystem;
+import akka.actor.typed.ActorRef;
+import akka.actor.typed.ActorRefResolver;
+import akka.actor.typed.javadsl.Adapter;
+import akka.serialization.SerializerWithStringManifest;
+import ru.sherb.printer.PrintResult;
+import ru.sherb.printer.PrintStatistics;
+import ru.sherb.printer.PrintedOrder;
+import ru.sherb.printer.Printable;
+
+import java.io.NotSerializableException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary form of the {@link PrintDispatcherImpl} commands and replies, registered in
+ * {@code application.conf}.
+ * <p>
+ * Every message starts with {@link PrintableCodec#VERSION}, documents are written by {@link PrintableCodec}
+ * and actor refs by their serialization format. {@link PrintDispatcherImpl.GetPrintedList} is not supported,
+ * a comparator has no binary form, {@link PrintDispatcherImpl.GetPrintedPage} should be sent instead.
+ * The same goes for the filter of {@link PrintDispatcherImpl.CancelMatching}.
+ */
+public class PrintDispatcherSerializer extends SerializerWithStringManifest {
+
+    private static final int IDENTIFIER = 7_401_216;
+
+    private static final String ADD_TO_PRINT = "a";
+    private static final String ADD_ALL_TO_PRINT = "aa";
+    private static final String ADMISSION = "ad";
+    private static final String NOTIFY_AFTER_ALL_COMPLETE = "n";
+    private static final String ALL_DOCUMENTS_ARE_PRINTED = "ap";
+    private static final String CANCEL_CURRENT_PRINT = "c";
+    private static final String CANCEL_PRINTER_CURRENT_PRINT = "cp";
+    private static final String CANCEL_JOBS = "cj";
+    private static final String CANCEL_ALL_QUEUED = "ca";
+    private static final String CANCELLED = "cd";
+    private static final String STOP_PRINT = "s";
+    private static final String STOP_PRINTER = "sp";
+    private static final String SHUTDOWN = "x";
+    private static final String NOT_PRINTED_DOCUMENTS = "np";
+    private static final String GET_PRINTED_PAGE = "gp";
+    private static final String PRINTED_DOCUMENTS = "p";
+    private static final String GET_AVG_PRINTED_TIME = "gt";
+    private static final String AVG_PRINTED_TIME = "t";
+    private static final String GET_STATS = "gs";
+    private static final String STATS = "st";
+    private static final String GET_QUEUE_DEPTH = "gq";
+    private static final String QUEUE_DEPTH = "q";
+    private static final String GET_EXECUTOR_STATS = "ge";
+    private static final String EXECUTOR_STATS = "e";
+    private static final String GET_PRINTER_STATS = "gps";
+    private static final String PRINTER_STATS = "ps";
+    private static final String GET_JOB_ESTIMATES = "gj";
+    private static final String JOB_ESTIMATES = "j";
+    private static final String PRINT_RESULT = "r";
+    private static final String ADD_TO_QUEUE = "iq";
+    private static final String ADD_ALL_TO_QUEUE = "iaq";
+    private static final String ADD_TO_PROGRESS = "ip";
+    private static final String ADD_TO_COMPLETE = "ic";
+    private static final String REMOVE_IN_PROGRESS = "ir";
+
+    private static final PrintedOrder[] ORDERS = PrintedOrder.values();
+    private static final PrintResult.Status[] STATUSES = PrintResult.Status.values();
+    private static final PrintDispatcherImpl.Verdict[] VERDICTS = PrintDispatcherImpl.Verdict.values();
+
+    private final ActorRefResolver resolver;
+
+    public PrintDispatcherSerializer(ExtendedActorSystem system) {
+        this.resolver = ActorRefResolver.get(Adapter.toTyped(system));
+    }
+
+    @Override
+    public int identifier() {
+        return IDENTIFIER;
+    }
+
+    @Override
+    public String manifest(Object message) {
+        if (message instanceof PrintDispatcherImpl.AddToPrint) {
+            return ADD_TO_PRINT;
+        } else if (message instanceof PrintDispatcherImpl.AddAllToPrint) {
+            return ADD_ALL_TO_PRINT;
+        } else if (message instanceof PrintDispatcherImpl.Admission) {
+            return ADMISSION;
+        } else if (message instanceof PrintDispatcherImpl.NotifyAfterAllComplete) {
+            return NOTIFY_AFTER_ALL_COMPLETE;
+        } else if (message instanceof PrintDispatcherImpl.AllDocumentsArePrintedEvent) {
+            return ALL_DOCUMENTS_ARE_PRINTED;
+        } else if (message instanceof PrintDispatcherImpl.CancelCurrentPrint) {
+            return CANCEL_CURRENT_PRINT;
+        } else if (message instanceof PrintDispatcherImpl.CancelPrinterCurrentPrint) {
+            return CANCEL_PRINTER_CURRENT_PRINT;
+        } else if (message instanceof PrintDispatcherImpl.CancelJobs) {
+            return CANCEL_JOBS;
+        } else if (message instanceof PrintDispatcherImpl.CancelAllQueued) {
+            return CANCEL_ALL_QUEUED;
+        } else if (message instanceof PrintDispatcherImpl.Cancelled) {
+            return CANCELLED;
+        } else if (message instanceof PrintDispatcherImpl.StopPrint) {
+            return STOP_PRINT;
+        } else if (message instanceof PrintDispatcherImpl.StopPrinter) {
+            return STOP_PRINTER;
+        } else if (message instanceof PrintDispatcherImpl.Shutdown) {
+            return SHUTDOWN;
+        } else if (message instanceof PrintDispatcherImpl.NotPrintedDocuments) {
+            return NOT_PRINTED_DOCUMENTS;
+        } else if (message instanceof PrintDispatcherImpl.GetPrintedPage) {
+            return GET_PRINTED_PAGE;
+        } else if (message instanceof PrintDispatcherImpl.PrintedDocuments) {
+            return PRINTED_DOCUMENTS;
+        } else if (message instanceof PrintDispatcherImpl.GetAvgPrintedTime) {
+            return GET_AVG_PRINTED_TIME;
+        } else if (message instanceof PrintDispatcherImpl.AvgPrintedTime) {
+            return AVG_PRINTED_TIME;
+        } else if (message instanceof PrintDispatcherImpl.GetStats) {
+            return GET_STATS;
+        } else if (message instanceof PrintStatistics) {
+            return STATS;
+        } else if (message instanceof PrintDispatcherImpl.GetQueueDepth) {
+            return GET_QUEUE_DEPTH;
+        } else if (message instanceof PrintDispatcherImpl.QueueDepth) {
+            return QUEUE_DEPTH;
+        } else if (message instanceof PrintDispatcherImpl.GetExecutorStats) {
+            return GET_EXECUTOR_STATS;
+        } else if (message instanceof ExecutorStatistics) {
+            return EXECUTOR_STATS;
+        } else if (message instanceof PrintDispatcherImpl.GetPrinterStats) {
+            return GET_PRINTER_STATS;
+        } else if (message instanceof PrintDispatcherImpl.PrinterStats) {
+            return PRINTER_STATS;
+        } else if (message instanceof PrintDispatcherImpl.GetJobEstimates) {
+            return GET_JOB_ESTIMATES;
+        } else if (message instanceof PrintDispatcherImpl.JobEstimates) {
+            return JOB_ESTIMATES;
+        } else if (message instanceof PrintResult) {
+            return PRINT_RESULT;
+        } else if (message instanceof PrintDispatcherImpl.AddToQueueDocument) {
+            return ADD_TO_QUEUE;
+        } else if (message instanceof PrintDispatcherImpl.AddAllToQueueDocuments) {
+            return ADD_ALL_TO_QUEUE;
+        } else if (message instanceof PrintDispatcherImpl.AddToProgressDocument) {
+            return ADD_TO_PROGRESS;
+        } else if (message instanceof PrintDispatcherImpl.AddToCompleteDocument) {
+            return ADD_TO_COMPLETE;
+        } else if (message instanceof PrintDispatcherImpl.RemoveInProgressDocument) {
+            return REMOVE_IN_PROGRESS;
+        }
+        throw new IllegalArgumentException("Can not serialize " + message.getClass().getName());
+    }
+
+    @Override
+    public byte[] toBinary(Object message) {
+        var out = new Output();
+        out.ensure(Byte.BYTES).put(PrintableCodec.VERSION);
+
+        if (message instanceof PrintDispatcherImpl.AddToPrint) {
+            var add = (PrintDispatcherImpl.AddToPrint) message;
+            out.ensure(Long.BYTES).putLong(add.getId());
+            writeDocument(out, add.getDocument());
+            writeRef(out, add.getReplyTo());
+            writeRef(out, add.getResultTo());
+        } else if (message instanceof PrintDispatcherImpl.AddAllToPrint) {
+            var add = (PrintDispatcherImpl.AddAllToPrint) message;
+            out.ensure(Long.BYTES).putLong(add.getFirstId());
+            writeDocuments(out, add.getDocuments());
+            writeRef(out, add.getReplyTo());
+        } else if (message instanceof PrintDispatcherImpl.Admission) {
+            var admission = (PrintDispatcherImpl.Admission) message;
+            out.ensure(Byte.BYTES + Long.BYTES).put((byte) admission.getVerdict().ordinal()).putLong(admission.getFirstId());
+        } else if (message instanceof PrintDispatcherImpl.NotifyAfterAllComplete) {
+            writeRef(out, ((PrintDispatcherImpl.NotifyAfterAllComplete) message).getObserver());
+        } else if (message instanceof PrintDispatcherImpl.AllDocumentsArePrintedEvent
+                || message instanceof PrintDispatcherImpl.CancelCurrentPrint
+                || message instanceof PrintDispatcherImpl.Shutdown) {
+            // no fields
+        } else if (message instanceof PrintDispatcherImpl.CancelPrinterCurrentPrint) {
+            out.ensure(Integer.BYTES).putInt(((PrintDispatcherImpl.CancelPrinterCurrentPrint) message).getPrinter());
+        } else if (message instanceof PrintDispatcherImpl.CancelJobs) {
+            var cancel = (PrintDispatcherImpl.CancelJobs) message;
+            writeIds(out, cancel.getIds());
+            writeRef(out, cancel.getReplyTo());
+        } else if (message instanceof PrintDispatcherImpl.CancelAllQueued) {
+            writeRef(out, ((PrintDispatcherImpl.CancelAllQueued) message).getReplyTo());
+        } else if (message instanceof PrintDispatcherImpl.Cancelled) {
+            out.ensure(Integer.BYTES).putInt(((PrintDispatcherImpl.Cancelled) message).getCount());
+        } else if (message instanceof PrintDispatcherImpl.StopPrint) {
+            writeRef(out, ((PrintDispatcherImpl.StopPrint) message).getReplyTo());
+        } else if (message instanceof PrintDispatcherImpl.StopPrinter) {
+            var stop = (PrintDispatcherImpl.StopPrinter) message;
+            out.ensure(Integer.BYTES).putInt(stop.getPrinter());
+            writeRef(out, stop.getReplyTo());
+        } else if (message instanceof PrintDispatcherImpl.NotPrintedDocuments) {
+            writeDocuments(out, ((PrintDispatcherImpl.NotPrintedDocuments) message).getDocuments());
+        } else if (message instanceof PrintDispatcherImpl.GetPrintedPage) {
+            var page = (PrintDispatcherImpl.GetPrintedPage) message;
+            writeRef(out, page.getReplyTo());
+            out.ensure(Byte.BYTES + Integer.BYTES * 2)
+                    .put((byte) page.getOrder().ordinal())
+                    .putInt(page.getOffset())
+                    .putInt(page.getLimit());
+        } else if (message instanceof PrintDispatcherImpl.PrintedDocuments) {
+            writeDocuments(out, ((PrintDispatcherImpl.PrintedDocuments) message).getDocuments());
+        } else if (message instanceof PrintDispatcherImpl.GetAvgPrintedTime) {
+            writeRef(out, ((PrintDispatcherImpl.GetAvgPrintedTime) message).getReplyTo());
+        } else if (message instanceof PrintDispatcherImpl.AvgPrintedTime) {
+            out.ensure(Long.BYTES).putLong(((PrintDispatcherImpl.AvgPrintedTime) message).getValue().toNanos());
+        } else if (message instanceof PrintDispatcherImpl.GetStats) {
+            writeRef(out, ((PrintDispatcherImpl.GetStats) message).getReplyTo());
+        } else if (message instanceof PrintStatistics) {
+            writeStats(out, (PrintStatistics) message);
+        } else if (message instanceof PrintDispatcherImpl.GetQueueDepth) {
+            writeRef(out, ((PrintDispatcherImpl.GetQueueDepth) message).getReplyTo());
+        } else if (message instanceof PrintDispatcherImpl.QueueDepth) {
+            out.ensure(Integer.BYTES).putInt(((PrintDispatcherImpl.QueueDepth) message).getValue());
+        } else if (message instanceof PrintDispatcherImpl.GetExecutorStats) {
+            writeRef(out, ((PrintDispatcherImpl.GetExecutorStats) message).getReplyTo());
+        } else if (message instanceof ExecutorStatistics) {
+            var stats = (ExecutorStatistics) message;
+            PrintableCodec.encode(out.ensure(PrintableCodec.encodedLength(stats.getName())), stats.getName());
+            out.ensure(Integer.BYTES * 3 + Long.BYTES * 3)
+                    .putInt(stats.getMaxThreads())
+                    .putInt(stats.getBusyThreads())
+                    .putInt(stats.getPeakBusyThreads())
+                    .putLong(stats.getCompletedTasks())
+                    .putLong(stats.getAverageSchedulingLatency().toNanos())
+                    .putLong(stats.getMaxSchedulingLatency().toNanos());
+        } else if (message instanceof PrintDispatcherImpl.GetPrinterStats) {
+            writeRef(out, ((PrintDispatcherImpl.GetPrinterStats) message).getReplyTo());
+        } else if (message instanceof PrintDispatcherImpl.PrinterStats) {
+            var printers = ((PrintDispatcherImpl.PrinterStats) message).getPrinters();
+            out.ensure(Integer.BYTES).putInt(printers.size());
+            for (PrinterStatistics printer : printers) {
+                out.ensure(Integer.BYTES).putInt(printer.getPrinter());
+                writeStats(out, printer.getPrintTime());
+                out.ensure(Long.BYTES + Double.BYTES)
+                        .putLong(printer.getAverageQueueTime().toNanos())
+                        .putDouble(printer.getSlowdown());
+            }
+        } else if (message instanceof PrintDispatcherImpl.GetJobEstimates) {
+            writeRef(out, ((PrintDispatcherImpl.GetJobEstimates) message).getReplyTo());
+        } else if (message instanceof PrintDispatcherImpl.JobEstimates) {
+            var jobs = ((PrintDispatcherImpl.JobEstimates) message).getJobs();
+            out.ensure(Integer.BYTES).putInt(jobs.size());
+            for (JobEstimate job : jobs) {
+                writeDocument(out, job.getDocument());
+                out.ensure(Integer.BYTES + Long.BYTES * 2)
+                        .putInt(job.getPrinter())
+                        .putLong(job.getPrintTime().toNanos())
+                        .putLong(job.getCompletion().toNanos());
+            }
+        } else if (message instanceof PrintResult) {
+            var result = (PrintResult) message;
+            writeDocument(out, result.getDocument());
+            out.ensure(Byte.BYTES).put((byte) result.getStatus().ordinal());
+        } else if (message instanceof PrintDispatcherImpl.AddToQueueDocument) {
+            var added = (PrintDispatcherImpl.AddToQueueDocument) message;
+            out.ensure(Long.BYTES * 2).putLong(added.getId()).putLong(added.getQueuedAt());
+        } else if (message instanceof PrintDispatcherImpl.AddAllToQueueDocuments) {
+            var added = (PrintDispatcherImpl.AddAllToQueueDocuments) message;
+            writeIds(out, added.getIds());
+            out.ensure(Long.BYTES).putLong(added.getQueuedAt());
+        } else if (message instanceof PrintDispatcherImpl.AddToProgressDocument) {
+            var starting = (PrintDispatcherImpl.AddToProgressDocument) message;
+            out.ensure(Long.BYTES * 2).putLong(starting.getId()).putLong(starting.getStartedAt());
+        } else if (message instanceof PrintDispatcherImpl.AddToCompleteDocument) {
+            var complete = (PrintDispatcherImpl.AddToCompleteDocument) message;
+            out.ensure(Long.BYTES * 2).putLong(complete.getId()).putLong(complete.getFinishedAt());
+        } else if (message instanceof PrintDispatcherImpl.RemoveInProgressDocument) {
+            out.ensure(Long.BYTES).putLong(((PrintDispatcherImpl.RemoveInProgressDocument) message).getId());
+        } else {
+            throw new IllegalArgumentException("Can not serialize " + message.getClass().getName());
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object fromBinary(byte[] bytes, String manifest) throws NotSerializableException {
+        var in = ByteBuffer.wrap(bytes);
+        byte version = in.get();
+        if (version != PrintableCodec.VERSION) {
+            throw new NotSerializableException("Unsupported version " + version + " of " + manifest);
+        }
+
+        switch (manifest) {
+            case ADD_TO_PRINT:
+                return new PrintDispatcherImpl.AddToPrint(in.getLong(), PrintableCodec.decode(in), readRef(in), readRef(in));
+            case ADD_ALL_TO_PRINT:
+                return new PrintDispatcherImpl.AddAllToPrint(in.getLong(), readDocuments(in), readRef(in));
+            case ADMISSION:
+                return new PrintDispatcherImpl.Admission(VERDICTS[in.get()], in.getLong());
+            case NOTIFY_AFTER_ALL_COMPLETE:
+                return new PrintDispatcherImpl.NotifyAfterAllComplete(readRef(in));
+            case ALL_DOCUMENTS_ARE_PRINTED:
+                return new PrintDispatcherImpl.AllDocumentsArePrintedEvent();
+            case CANCEL_CURRENT_PRINT:
+                return new PrintDispatcherImpl.CancelCurrentPrint();
+            case CANCEL_PRINTER_CURRENT_PRINT:
+                return new PrintDispatcherImpl.CancelPrinterCurrentPrint(in.getInt());
+            case CANCEL_JOBS:
+                return new PrintDispatcherImpl.CancelJobs(readIds(in), readRef(in));
+            case CANCEL_ALL_QUEUED:
+                return new PrintDispatcherImpl.CancelAllQueued(readRef(in));
+            case CANCELLED:
+                return new PrintDispatcherImpl.Cancelled(in.getInt());
+            case STOP_PRINT:
+                return new PrintDispatcherImpl.StopPrint(readRef(in));
+            case STOP_PRINTER:
+                return new PrintDispatcherImpl.StopPrinter(in.getInt(), readRef(in));
+            case SHUTDOWN:
+                return new PrintDispatcherImpl.Shutdown();
+            case NOT_PRINTED_DOCUMENTS:
+                return new PrintDispatcherImpl.NotPrintedDocuments(readDocuments(in));
+            case GET_PRINTED_PAGE:
+                return new PrintDispatcherImpl.GetPrintedPage(readRef(in), ORDERS[in.get()], in.getInt(), in.getInt());
+            case PRINTED_DOCUMENTS:
+                return new PrintDispatcherImpl.PrintedDocuments(readDocuments(in));
+            case GET_AVG_PRINTED_TIME:
+                return new PrintDispatcherImpl.GetAvgPrintedTime(readRef(in));
+            case AVG_PRINTED_TIME:
+                return new PrintDispatcherImpl.AvgPrintedTime(Duration.ofNanos(in.getLong()));
+            case GET_STATS:
+                return new PrintDispatcherImpl.GetStats(readRef(in));
+            case STATS:
+                return readStats(in);
+            case GET_QUEUE_DEPTH:
+                return new PrintDispatcherImpl.GetQueueDepth(readRef(in));
+            case QUEUE_DEPTH:
+                return new PrintDispatcherImpl.QueueDepth(in.getInt());
+            case GET_EXECUTOR_STATS:
+                return new PrintDispatcherImpl.GetExecutorStats(readRef(in));
+            case EXECUTOR_STATS:
+                return new ExecutorStatistics(PrintableCodec.decodeString(in), in.getInt(), in.getInt(), in.getInt(),
+                        in.getLong(), readDuration(in), readDuration(in));
+            case GET_PRINTER_STATS:
+                return new PrintDispatcherImpl.GetPrinterStats(readRef(in));
+            case PRINTER_STATS:
+                int count = in.getInt();
+                List<PrinterStatistics> printers = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    printers.add(new PrinterStatistics(in.getInt(), readStats(in), readDuration(in), in.getDouble()));
+                }
+                return new PrintDispatcherImpl.PrinterStats(printers);
+            case GET_JOB_ESTIMATES:
+                return new PrintDispatcherImpl.GetJobEstimates(readRef(in));
+            case JOB_ESTIMATES:
+                int jobCount = in.getInt();
+                List<JobEstimate> jobs = new ArrayList<>(jobCount);
+                for (int i = 0; i < jobCount; i++) {
+                    jobs.add(new JobEstimate(PrintableCodec.decode(in), in.getInt(), readDuration(in), readDuration(in)));
+                }
+                return new PrintDispatcherImpl.JobEstimates(jobs);
+            case PRINT_RESULT:
+                return new PrintResult(PrintableCodec.decode(in), STATUSES[in.get()]);
+            case ADD_TO_QUEUE:
+                return new PrintDispatcherImpl.AddToQueueDocument(in.getLong(), in.getLong());
+            case ADD_ALL_TO_QUEUE:
+                return new PrintDispatcherImpl.AddAllToQueueDocuments(readIds(in), in.getLong());
+            case ADD_TO_PROGRESS:
+                return new PrintDispatcherImpl.AddToProgressDocument(in.getLong(), in.getLong());
+            case ADD_TO_COMPLETE:
+                return new PrintDispatcherImpl.AddToCompleteDocument(in.getLong(), in.getLong());
+            case REMOVE_IN_PROGRESS:
+                return new PrintDispatcherImpl.RemoveInProgressDocument(in.getLong());
+            default:
+                throw new NotSerializableException("Unknown manifest " + manifest);
+        }
+    }
+
+    private static void writeDocument(Output out, Printable document) {
+        PrintableCodec.encode(out.ensure(PrintableCodec.encodedLength(document)), document);
+    }
+
+    private static void writeDocuments(Output out, List<Printable> documents) {
+        out.ensure(Integer.BYTES).putInt(documents.size());
+        for (Printable document : documents) {
+            writeDocument(out, document);
+        }
+    }
+
+    private static List<Printable> readDocuments(ByteBuffer in) {
+        int size = in.getInt();
+        List<Printable> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(PrintableCodec.decode(in));
+        }
+        return result;
+    }
+
+    private static void writeIds(Output out, long[] ids) {
+        var buffer = out.ensure(Integer.BYTES + Long.BYTES * ids.length).putInt(ids.length);
+        for (long id : ids) {
+            buffer.putLong(id);
+        }
+    }
+
+    private static long[] readIds(ByteBuffer in) {
+        long[] ids = new long[in.getInt()];
+        Arrays.setAll(ids, __ -> in.getLong());
+        return ids;
+    }
+
+    /**
+     * {@code null} refs, optional in some commands, are written as an empty string.
+     */
+    private void writeRef(Output out, ActorRef<?> ref) {
+        var path = ref == null ? "" : resolver.toSerializationFormat(ref);
+        PrintableCodec.encode(out.ensure(PrintableCodec.encodedLength(path)), path);
+    }
+
+    private <T> ActorRef<T> readRef(ByteBuffer in) {
+        var path = PrintableCodec.decodeString(in);
+        return path.isEmpty() ? null : resolver.resolveActorRef(path);
+    }
+
+    private static void writeStats(Output out, PrintStatistics stats) {
+        out.ensure(Long.BYTES * 8)
+                .putLong(stats.getCount())
+                .putLong(stats.getTotal().toNanos())
+                .putLong(stats.getMin().toNanos())
+                .putLong(stats.getMax().toNanos())
+                .putLong(stats.getAverage().toNanos())
+                .putLong(stats.getP50().toNanos())
+                .putLong(stats.getP95().toNanos())
+                .putLong(stats.getP99().toNanos());
+    }
+
+    private static PrintStatistics readStats(ByteBuffer in) {
+        return new PrintStatistics(in.getLong(), readDuration(in), readDuration(in), readDuration(in),
+                readDuration(in), readDuration(in), readDuration(in), readDuration(in));
+    }
+
+    private static Duration readDuration(ByteBuffer in) {
+        return Duration.ofNanos(in.getLong());
+    }
+
+    /**
+     * Growable buffer, the writers reserve room for every part before they put it.
+     */
+    private static final class Output {
+        private ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        ByteBuffer ensure(int length) {
+            if (buffer.remaining() < length) {
+                var grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            return buffer;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ru.sherb.actors;
+
+import lombok.NonNull;
+import lombok.Value;
+import lombok.With;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Tuning of a {@link PrintDispatcherImpl}, start from {@link #defaults()} and replace what is needed
+ * with the {@code with*} methods.
+ */
+@Value
+@With
+public class PrintDispatcherSettings {
+
+    private static final PrintDispatcherSettings DEFAULTS = new PrintDispatcherSettings(
+            HistoryRetention.unbounded(),
+            Duration.ofSeconds(1),
+            SchedulingPolicy.fifo(),
+            Integer.MAX_VALUE,
+            OverflowStrategy.REJECT,
+            null,
+            Duration.ofMillis(10),
+            PrinterExecutor.sharedBlocking(),
+            true);
+
+    @NonNull HistoryRetention historyRetention;
+
+    /**
+     * How long facades wait for a reply of the dispatcher.
+     */
+    @NonNull Duration askTimeout;
+
+    /**
+     * Order of documents in the queue of every printer of the pool.
+     */
+    @NonNull SchedulingPolicy schedulingPolicy;
+
+    /**
+     * How many accepted documents may wait for printing or print at once, unbounded by default.
+     */
+    int capacity;
+
+    @NonNull OverflowStrategy overflowStrategy;
+
+    /**
+     * Where not printed documents are journaled, they are printed again after a restart with the same directory,
+     * including the documents not printed at {@link ru.sherb.printer.PrintDispatcher#stopPrint()}.
+     * {@code null} by default, documents are kept only in memory.
+     */
+    Path journalDirectory;
+
+    /**
+     * How long journal records may wait to be forced to the disk together.
+     */
+    @NonNull Duration journalFlushInterval;
+
+    /**
+     * Where the printers of the pool print, the shared blocking dispatcher of the actor system by default.
+     */
+    @NonNull PrinterExecutor printerExecutor;
+
+    /**
+     * Whether the {@link PrintDispatcherMXBean} of the dispatcher is registered in the platform MBean server,
+     * enabled by default.
+     */
+    boolean jmxEnabled;
+
+    public static PrintDispatcherSettings defaults() {
+        return DEFAULTS;
+    }
+}
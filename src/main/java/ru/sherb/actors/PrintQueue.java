@@ -0,0 +1,32 @@
+package ru.sherb.actors;
+
+/**
+ * Queue of a printer, its order is defined by a {@link SchedulingPolicy}.
+ * Used only by the printer actor, so implementations do not need to be thread safe.
+ */
+public interface PrintQueue {
+
+    void add(QueuedDocument document);
+
+    /**
+     * @return the next document to print or {@code null} if the queue is empty
+     */
+    QueuedDocument poll();
+
+    /**
+     * Removes the document from the middle of the queue, the queues of {@link SchedulingPolicy} do it
+     * without scanning.
+     *
+     * @return {@code false} if there is no such document, or the queue does not support the removal;
+     * the printer skips the document when it leaves the queue then
+     */
+    default boolean remove(long id) {
+        return false;
+    }
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -0,0 +1,71 @@
+package ru.sherb.actors;
+
+import ru.sherb.printer.PaperSize;
+import ru.sherb.printer.Printable;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Learned print time of one printer, an exponentially weighted moving average of the observed print time
+ * for every {@link PaperSize} it printed.
+ * <p>
+ * A size the printer has not printed yet is estimated by the declared {@link Printable#printDuration()},
+ * corrected by the average ratio of observed to declared time of the printer, so a printer whose driver
+ * understates durations is corrected for every size after its first prints.
+ * <p>
+ * The prints of the printer are the only writer, one at a time, {@link #record} costs one hash lookup and
+ * a few ordered stores. The dispatcher reads estimates from its own thread for routing.
+ */
+final class PrintTimeEstimator {
+
+    /**
+     * Weight of the newest observation, the estimate follows a changed printer in about ten prints.
+     */
+    static final double ALPHA = 0.2;
+
+    private static final long UNKNOWN = -1;
+
+    // nanos by paper size, sizes must implement equals and hashCode
+    private final ConcurrentHashMap<PaperSize, AtomicLong> bySize = new ConcurrentHashMap<>();
+    // observed over declared time as the raw bits of a double
+    private final AtomicLong ratio = new AtomicLong(UNKNOWN);
+
+    /**
+     * Must be called by a single thread.
+     */
+    void record(Printable document, long observedNanos) {
+        long observed = Math.max(0, observedNanos);
+        var estimate = bySize.get(document.size());
+        if (estimate == null) {
+            bySize.put(document.size(), new AtomicLong(observed));
+        } else {
+            estimate.lazySet(ewma(estimate.get(), observed));
+        }
+
+        long declared = document.printDuration().toNanos();
+        if (declared > 0) {
+            double sample = (double) observed / declared;
+            long bits = ratio.get();
+            double updated = bits == UNKNOWN ? sample : Double.longBitsToDouble(bits) * (1 - ALPHA) + sample * ALPHA;
+            ratio.lazySet(Double.doubleToRawLongBits(updated));
+        }
+    }
+
+    /**
+     * @return expected print time of the document on this printer
+     */
+    long estimateNanos(Printable document) {
+        var estimate = bySize.get(document.size());
+        if (estimate != null) {
+            return estimate.get();
+        }
+        long declared = document.printDuration().toNanos();
+        long bits = ratio.get();
+        return bits == UNKNOWN ? declared : (long) (declared * Double.longBitsToDouble(bits));
+    }
+
+    private static long ewma(long previous, long observed) {
+        return previous + Math.round((observed - previous) * ALPHA);
+    }
+}
@@ -0,0 +1,99 @@
+package ru.sherb.actors;
+
+import ru.sherb.printer.ISOPaperSizes;
+import ru.sherb.printer.PaperSize;
+import ru.sherb.printer.Printable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Binary form of a {@link Printable}, shared by the {@link JobJournal} and {@link PrintDispatcherSerializer}:
+ * <pre>
+ * [priority int][print duration nanos long][ISO size ordinal byte, or -1 and width int, height int][name]
+ * </pre>
+ * Strings are a length int and UTF-8 bytes. Decoded documents are {@link StoredDocument}s.
+ */
+final class PrintableCodec {
+
+    /**
+     * Version of the layout, written by the users of the codec in their headers.
+     */
+    static final byte VERSION = 1;
+
+    private static final byte CUSTOM_SIZE = -1;
+
+    private PrintableCodec() {
+    }
+
+    static int encodedLength(Printable document) {
+        int length = Integer.BYTES + Long.BYTES + Byte.BYTES + encodedLength(document.name());
+        if (!(document.size() instanceof ISOPaperSizes)) {
+            length += Integer.BYTES * 2;
+        }
+        return length;
+    }
+
+    static void encode(ByteBuffer out, Printable document) {
+        out.putInt(document.priority());
+        out.putLong(document.printDuration().toNanos());
+        var size = document.size();
+        if (size instanceof ISOPaperSizes) {
+            out.put((byte) ((ISOPaperSizes) size).ordinal());
+        } else {
+            out.put(CUSTOM_SIZE);
+            out.putInt(size.width());
+            out.putInt(size.height());
+        }
+        encode(out, document.name());
+    }
+
+    static Printable decode(ByteBuffer in) {
+        int priority = in.getInt();
+        var printDuration = Duration.ofNanos(in.getLong());
+        byte ordinal = in.get();
+        PaperSize size = ordinal != CUSTOM_SIZE
+                ? ISOPaperSizes.values()[ordinal]
+                : new StoredDocument.Size(in.getInt(), in.getInt());
+        return new StoredDocument(decodeString(in), size, printDuration, priority);
+    }
+
+    static int encodedLength(String value) {
+        return Integer.BYTES + utf8Length(value);
+    }
+
+    static void encode(ByteBuffer out, String value) {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length);
+        out.put(bytes);
+    }
+
+    static String decodeString(ByteBuffer in) {
+        var bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Counts without encoding, so the buffer is sized before the string is written.
+     */
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i += 1;
+            } else {
+                // unpaired surrogates are replaced by '?'
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
+    }
+}
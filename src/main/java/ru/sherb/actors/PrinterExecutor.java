@@ -0,0 +1,115 @@
+package ru.sherb.actors;
+
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.DispatcherSelector;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Where the blocking {@link ru.sherb.printer.Printer#print} calls of a dispatcher run. Every dispatcher
+ * gets its own executor, dedicated pools are shut down when the dispatcher stops.
+ */
+public abstract class PrinterExecutor {
+
+    private static final PrinterExecutor SHARED_BLOCKING = fromSelector("akka.actor.default-blocking-io-dispatcher",
+            DispatcherSelector.blocking());
+
+    PrinterExecutor() {
+    }
+
+    /**
+     * @param name     name of the dispatcher, used for the threads and the statistics
+     * @param printers size of the printer pool of the dispatcher
+     */
+    abstract InstrumentedExecutor start(ActorSystem<?> system, String name, int printers);
+
+    /**
+     * The default blocking dispatcher of the actor system, shared with everything else that blocks there.
+     */
+    public static PrinterExecutor sharedBlocking() {
+        return SHARED_BLOCKING;
+    }
+
+    /**
+     * An Akka dispatcher configured at the given path, it may be shared by several dispatchers.
+     */
+    public static PrinterExecutor fromConfig(String path) {
+        return fromSelector(path, DispatcherSelector.fromConfig(path));
+    }
+
+    /**
+     * A dedicated pool of at most {@code threads} threads, prints beyond it wait in the queue of the pool.
+     */
+    public static PrinterExecutor fixedThreadPool(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        return new PrinterExecutor() {
+            @Override
+            InstrumentedExecutor start(ActorSystem<?> system, String name, int printers) {
+                return dedicated(name, threads);
+            }
+        };
+    }
+
+    /**
+     * A dedicated pool with a thread for every printer, a printer prints one document at a time, so prints
+     * never wait for a thread.
+     */
+    public static PrinterExecutor threadPerPrinter() {
+        return new PrinterExecutor() {
+            @Override
+            InstrumentedExecutor start(ActorSystem<?> system, String name, int printers) {
+                return dedicated(name, printers);
+            }
+        };
+    }
+
+    /**
+     * A new virtual thread for every print, so a slow printer costs no platform thread while it waits.
+     * Requires JDK 21 or later.
+     *
+     * @throws UnsupportedOperationException if the JDK has no virtual threads
+     */
+    public static PrinterExecutor virtualThreads() {
+        if (!VirtualThreads.AVAILABLE) {
+            throw new UnsupportedOperationException("Virtual threads require JDK 21, the current one is "
+                    + Runtime.version());
+        }
+        return new PrinterExecutor() {
+            @Override
+            InstrumentedExecutor start(ActorSystem<?> system, String name, int printers) {
+                return InstrumentedExecutor.owned(name, VirtualThreads.newExecutor(name + "-printing-"), 0);
+            }
+        };
+    }
+
+    public static boolean isVirtualThreadsAvailable() {
+        return VirtualThreads.AVAILABLE;
+    }
+
+    private static PrinterExecutor fromSelector(String path, DispatcherSelector selector) {
+        return new PrinterExecutor() {
+            @Override
+            InstrumentedExecutor start(ActorSystem<?> system, String name, int printers) {
+                return InstrumentedExecutor.shared(path, system.dispatchers().lookup(selector));
+            }
+        };
+    }
+
+    private static InstrumentedExecutor dedicated(String name, int threads) {
+        var pool = Executors.newFixedThreadPool(threads, daemonThreads(name + "-printing-"));
+        return InstrumentedExecutor.owned(name, pool, threads);
+    }
+
+    static ThreadFactory daemonThreads(String prefix) {
+        var number = new AtomicInteger();
+        return task -> {
+            var thread = new Thread(task, prefix + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -11,14 +11,14 @@ import akka.actor.typed.javadsl.Receive;
 import lombok.Value;
 import ru.sherb.printer.Printable;
 import ru.sherb.printer.Printer;
-import scala.concurrent.ExecutionContextExecutor;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 /**
  * @author maksim
@@ -28,84 +28,216 @@ public class PrinterImpl extends AbstractBehavior<PrinterImpl.Command> {
 
     interface Command { }
 
+    /**
+     * {@code estimatedNanos} is the expected print time the dispatcher routed the document by, the queue
+     * orders by it with {@link SchedulingPolicy#shortestEstimatedJobFirst()}.
+     */
     @Value
     static class Print implements Command {
         ActorRef<PrintEvent> consumer;
+        long id;
         Printable document;
+        long estimatedNanos;
+    }
+
+    /**
+     * Batch of documents, it is acknowledged by one {@link DocumentsAddedToQueue} event.
+     */
+    @Value
+    static class PrintAll implements Command {
+        ActorRef<PrintEvent> consumer;
+        long[] ids;
+        Printable[] documents;
+        long[] estimatedNanos;
     }
 
     static class Cancel implements Command { }
 
+    /**
+     * Removes documents from the queue, no events are sent about them. A document is still printed
+     * if it was already started.
+     */
+    @Value
+    static class Discard implements Command {
+        long[] ids;
+    }
+
+    /**
+     * Removes documents from the queue like {@link Discard}, and stops the print of the one that is printing,
+     * it ends with {@link PrintCancelled}.
+     */
+    @Value
+    static class CancelJobs implements Command {
+        long[] ids;
+    }
+
     private static class PrintNext implements Command { }
 
+    /**
+     * Lifecycle events of a document, tagged with the id from {@link Print}. Times are {@link System#nanoTime()}
+     * of the moment the printer saw, not of the moment the event is received.
+     */
     interface PrintEvent { }
 
-    static class DocumentAddedToQueue implements PrintEvent { }
+    @Value
+    static class DocumentAddedToQueue implements PrintEvent {
+        long id;
+        long queuedAt;
+    }
 
-    static class PrintStarting implements PrintEvent { }
+    @Value
+    static class DocumentsAddedToQueue implements PrintEvent {
+        long[] ids;
+        long queuedAt;
+    }
 
-    static class PrintComplete implements PrintEvent { }
+    @Value
+    static class PrintStarting implements PrintEvent {
+        long id;
+        long startedAt;
+    }
 
-    static class PrintCancelled implements PrintEvent { }
+    @Value
+    static class PrintComplete implements PrintEvent {
+        long id;
+        long finishedAt;
+    }
+
+    @Value
+    static class PrintCancelled implements PrintEvent {
+        long id;
+    }
 
 
     public static Behavior<PrinterImpl.Command> create(Printer printer) {
-        return Behaviors.setup(param -> new PrinterImpl(param, printer));
+        return create(printer, SchedulingPolicy.fifo());
+    }
+
+    public static Behavior<PrinterImpl.Command> create(Printer printer, SchedulingPolicy policy) {
+        return Behaviors.setup(param -> new PrinterImpl(param, printer, policy.newQueue()));
+    }
+
+    /**
+     * @param executor  runs the blocking {@link Printer#print} calls
+     * @param estimator learns the print time of the printer, prints of the printer are its only writer, they
+     *                  never overlap
+     */
+    static Behavior<PrinterImpl.Command> create(Printer printer,
+                                                SchedulingPolicy policy,
+                                                InstrumentedExecutor executor,
+                                                PrintTimeEstimator estimator) {
+        return Behaviors.setup(param -> new PrinterImpl(param, printer, policy.newQueue(), executor, estimator));
     }
 
     private final Printer printer;
-    private final ExecutionContextExecutor blockingExecutor;
+    private final Executor blockingExecutor;
+    private final boolean interruptOnCancel;
+    private final PrintTimeEstimator estimator;
+
+    // the thread in Printer.print, it is interrupted only under the lock, so the interrupt can not leak
+    // to the next task of the thread
+    private final Object printingLock = new Object();
+    private Thread printingThread;
 
-    private final Queue<Print> queue = new LinkedList<>();
+    private final PrintQueue queue;
+
+    // ids of discarded documents the queue could not remove, they are skipped when they leave the queue
+    private final Set<Long> discarded = new HashSet<>();
 
     private volatile boolean isWorking = false;
+    // id of the document in Printer.print, valid while isWorking
+    private long printingId;
+
+
+    public PrinterImpl(ActorContext<Command> ctx, Printer printer, PrintQueue queue) {
+        this(ctx, printer, queue, ctx.getSystem().dispatchers().lookup(DispatcherSelector.blocking()), false,
+                new PrintTimeEstimator());
+    }
 
+    PrinterImpl(ActorContext<Command> ctx,
+                Printer printer,
+                PrintQueue queue,
+                InstrumentedExecutor executor,
+                PrintTimeEstimator estimator) {
+        this(ctx, printer, queue, executor, executor.interruptsOnCancel(), estimator);
+    }
 
-    public PrinterImpl(ActorContext<Command> ctx, Printer printer) {
+    /**
+     * @param interruptOnCancel cancel interrupts the printing thread in addition to {@link Printer#stop()},
+     *                          the executor must not run anything but prints then
+     */
+    private PrinterImpl(ActorContext<Command> ctx,
+                        Printer printer,
+                        PrintQueue queue,
+                        Executor blockingExecutor,
+                        boolean interruptOnCancel,
+                        PrintTimeEstimator estimator) {
         super(ctx);
         this.printer = printer;
-
-        this.blockingExecutor = ctx.getSystem()
-                .dispatchers().lookup(DispatcherSelector.blocking());
+        this.queue = queue;
+        this.blockingExecutor = blockingExecutor;
+        this.interruptOnCancel = interruptOnCancel;
+        this.estimator = estimator;
     }
 
     @Override
     public Receive<Command> createReceive() {
         return newReceiveBuilder()
                 .onMessage(Print.class, this::onPrint)
+                .onMessage(PrintAll.class, this::onPrintAll)
                 .onMessage(PrintNext.class, __ -> this.onPrintNext())
                 .onMessage(Cancel.class, __ -> this.onCancel())
+                .onMessage(Discard.class, this::onDiscard)
+                .onMessage(CancelJobs.class, this::onCancelJobs)
                 .onSignal(PostStop.class, __ -> this.onPostStop())
                 .build();
     }
 
     private Behavior<PrinterImpl.Command> onPrint(Print cmd) {
-        cmd.consumer.tell(new DocumentAddedToQueue());
-        queue.add(cmd);
+        long now = System.nanoTime();
+        cmd.consumer.tell(new DocumentAddedToQueue(cmd.id, now));
+        queue.add(new QueuedDocument(cmd.consumer, cmd.id, cmd.document, now, cmd.estimatedNanos));
 
         getContext().getSelf().tell(new PrintNext());
         return this;
     }
 
-    private CompletionStage<Void> printAsync(Print cmd) {
+    private Behavior<PrinterImpl.Command> onPrintAll(PrintAll cmd) {
+        long now = System.nanoTime();
+        cmd.consumer.tell(new DocumentsAddedToQueue(cmd.ids, now));
+        for (int i = 0; i < cmd.ids.length; i++) {
+            queue.add(new QueuedDocument(cmd.consumer, cmd.ids[i], cmd.documents[i], now, cmd.estimatedNanos[i]));
+        }
+
+        getContext().getSelf().tell(new PrintNext());
+        return this;
+    }
+
+    private CompletionStage<Void> printAsync(QueuedDocument queued) {
         var log = getContext().getLog();
         var ref = getContext().getSelf();
         isWorking = true;
+        printingId = queued.id();
         //todo use circuit breaker here (akka.pattern.CircuitBreaker does not work)
         return CompletableFuture
-                .runAsync(() -> {
-                    cmd.consumer.tell(new PrintStarting());
-                    tryPrint(cmd);
+                .supplyAsync(() -> {
+                    long startedAt = System.nanoTime();
+                    queued.consumer.tell(new PrintStarting(queued.id(), startedAt));
+                    tryPrint(queued);
+                    long finishedAt = System.nanoTime();
+                    // learned before the dispatcher hears of it, so its next routing sees the print
+                    estimator.record(queued.document(), finishedAt - startedAt);
+                    return finishedAt;
                 }, blockingExecutor)
-                .thenRun(() -> {
+                .thenAccept(finishedAt -> {
                     isWorking = false;
-                    cmd.consumer.tell(new PrintComplete());
+                    queued.consumer.tell(new PrintComplete(queued.id(), finishedAt));
                     ref.tell(new PrintNext());
                 })
                 .exceptionally(err -> {
                     isWorking = false;
                     if (isCancelled(err)) {
-                        cmd.consumer.tell(new PrintCancelled());
+                        queued.consumer.tell(new PrintCancelled(queued.id()));
                         ref.tell(new PrintNext());
                         return null;
 
@@ -115,12 +247,34 @@ public class PrinterImpl extends AbstractBehavior<PrinterImpl.Command> {
                 });
     }
 
-    private void tryPrint(Print cmd) {
+    private void tryPrint(QueuedDocument queued) {
+        synchronized (printingLock) {
+            printingThread = Thread.currentThread();
+        }
         try {
-            printer.print(cmd.document);
+            printer.print(queued.document());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new CompletionException(e);
+        } finally {
+            synchronized (printingLock) {
+                printingThread = null;
+                if (interruptOnCancel) {
+                    // a cancel that came after the print is not for the next task
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    private void interruptPrinting() {
+        if (!interruptOnCancel) {
+            return;
+        }
+        synchronized (printingLock) {
+            if (printingThread != null) {
+                printingThread.interrupt();
+            }
         }
     }
 
@@ -133,20 +287,62 @@ public class PrinterImpl extends AbstractBehavior<PrinterImpl.Command> {
             return this;
         }
 
-        Print cmd = queue.poll();
-        printAsync(cmd);
+        var next = queue.poll();
+        while (next != null && discarded.remove(next.id())) {
+            next = queue.poll();
+        }
+        if (queue.isEmpty()) {
+            // the rest were discarded when already printing
+            discarded.clear();
+        }
+
+        if (next != null) {
+            printAsync(next);
+        }
+        return this;
+    }
+
+    private Behavior<PrinterImpl.Command> onDiscard(Discard cmd) {
+        for (long id : cmd.ids) {
+            discard(id);
+        }
         return this;
     }
 
+    private Behavior<PrinterImpl.Command> onCancelJobs(CancelJobs cmd) {
+        for (long id : cmd.ids) {
+            if (isWorking && printingId == id) {
+                printer.stop();
+                interruptPrinting();
+            } else {
+                discard(id);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Documents come before the commands about them, so a document that is not in the queue is already
+     * printing or printed, unless the queue does not support the removal. Its id is kept until the queue
+     * runs empty either way.
+     */
+    private void discard(long id) {
+        if (!queue.remove(id)) {
+            discarded.add(id);
+        }
+    }
+
     private Behavior<PrinterImpl.Command> onCancel() {
         if (isWorking) {
             printer.stop();
+            interruptPrinting();
         }
         return this;
     }
 
     private Behavior<PrinterImpl.Command> onPostStop() {
         printer.stop();
+        interruptPrinting();
         return this;
     }
 }
@@ -0,0 +1,36 @@
+package ru.sherb.actors;
+
+import lombok.Value;
+import ru.sherb.printer.PrintStatistics;
+
+import java.time.Duration;
+
+/**
+ * Measured timings of one printer of the pool, unlike {@link ru.sherb.printer.PrintDispatcher#stats()} they
+ * come from the clock around {@link ru.sherb.printer.Printer#print}, not from the declared
+ * {@link ru.sherb.printer.Printable#printDuration()}.
+ */
+@Value
+public class PrinterStatistics {
+
+    /**
+     * Number of the printer in the pool.
+     */
+    int printer;
+
+    /**
+     * Observed print durations of the printed documents.
+     */
+    PrintStatistics printTime;
+
+    /**
+     * How long printed documents waited in the queue of the printer.
+     */
+    Duration averageQueueTime;
+
+    /**
+     * Observed print time over the declared one, above 1 the printer is slower than the documents claim.
+     * {@code 0} if the printed documents declare no duration.
+     */
+    double slowdown;
+}
@@ -0,0 +1,58 @@
+package ru.sherb.actors;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Running aggregates of the measured timings of printed documents, by printer number.
+ * <p>
+ * Sums are kept in primitive arrays indexed by printer, so recording a printed document is a few additions
+ * and one histogram update. Not thread safe, it is owned by the dispatcher actor.
+ */
+final class PrinterTimings {
+
+    private final long[] printed;
+    private final long[] printNanos;
+    private final long[] declaredNanos;
+    private final long[] queueNanos;
+    private final LatencyHistogram[] printTimes;
+
+    PrinterTimings(int printers) {
+        this.printed = new long[printers];
+        this.printNanos = new long[printers];
+        this.declaredNanos = new long[printers];
+        this.queueNanos = new long[printers];
+        this.printTimes = new LatencyHistogram[printers];
+        for (int i = 0; i < printers; i++) {
+            printTimes[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @param queuedAt   {@link System#nanoTime()} the printer put the document into its queue
+     * @param startedAt  {@link System#nanoTime()} before {@link ru.sherb.printer.Printer#print}
+     * @param finishedAt {@link System#nanoTime()} after it
+     * @param declared   {@link ru.sherb.printer.Printable#printDuration()} of the document
+     */
+    void record(int printer, long queuedAt, long startedAt, long finishedAt, Duration declared) {
+        long observed = Math.max(0, finishedAt - startedAt);
+        printed[printer] += 1;
+        printNanos[printer] += observed;
+        declaredNanos[printer] += declared.toNanos();
+        queueNanos[printer] += Math.max(0, startedAt - queuedAt);
+        printTimes[printer].record(observed / 1_000_000);
+    }
+
+    List<PrinterStatistics> snapshot() {
+        List<PrinterStatistics> result = new ArrayList<>(printed.length);
+        for (int i = 0; i < printed.length; i++) {
+            result.add(new PrinterStatistics(
+                    i,
+                    printTimes[i].snapshot(),
+                    Duration.ofNanos(printed[i] == 0 ? 0 : queueNanos[i] / printed[i]),
+                    declaredNanos[i] == 0 ? 0 : (double) printNanos[i] / declaredNanos[i]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.sherb.actors;
+
+import akka.actor.typed.ActorRef;
+import ru.sherb.printer.Printable;
+
+/**
+ * Document waiting in the queue of a printer.
+ */
+public final class QueuedDocument {
+
+    final ActorRef<PrinterImpl.PrintEvent> consumer;
+    private final long id;
+    private final Printable document;
+    private final long enqueuedAt;
+    private final long estimatedNanos;
+
+    QueuedDocument(ActorRef<PrinterImpl.PrintEvent> consumer, long id, Printable document, long enqueuedAt) {
+        this(consumer, id, document, enqueuedAt, document.printDuration().toNanos());
+    }
+
+    QueuedDocument(ActorRef<PrinterImpl.PrintEvent> consumer,
+                   long id,
+                   Printable document,
+                   long enqueuedAt,
+                   long estimatedNanos) {
+        this.consumer = consumer;
+        this.id = id;
+        this.document = document;
+        this.enqueuedAt = enqueuedAt;
+        this.estimatedNanos = estimatedNanos;
+    }
+
+    /**
+     * @return id of the document in the dispatcher, later documents of a producer have greater ids
+     */
+    public long id() {
+        return id;
+    }
+
+    public Printable document() {
+        return document;
+    }
+
+    /**
+     * @return time of adding to the queue in {@link System#nanoTime()} units
+     */
+    public long enqueuedAt() {
+        return enqueuedAt;
+    }
+
+    /**
+     * @return print time of the document expected from what the printer printed before, the declared
+     * {@link Printable#printDuration()} until it learned anything
+     */
+    public long estimatedNanos() {
+        return estimatedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "QueuedDocument{id=" + id + ", document=" + document + '}';
+    }
+}
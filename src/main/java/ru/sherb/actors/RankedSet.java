@@ -0,0 +1,169 @@
+package ru.sherb.actors;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.function.Consumer;
+
+/**
+ * Sorted set that finds an element by its rank, so a page deep in a big set costs {@code O(log n + limit)}
+ * instead of walking the elements before it. A treap where every node knows the size of its subtree.
+ * The comparator must tell every two elements apart. Not thread safe.
+ */
+final class RankedSet<E> {
+
+    private static final class Node<E> {
+        final E value;
+        final int priority;
+        Node<E> left;
+        Node<E> right;
+        int size = 1;
+
+        Node(E value, int priority) {
+            this.value = value;
+            this.priority = priority;
+        }
+    }
+
+    private final Comparator<? super E> comparator;
+
+    private Node<E> root;
+    // xorshift state of the priorities, a fixed seed keeps the shape reproducible
+    private int seed = 0x2545F491;
+
+    RankedSet(Comparator<? super E> comparator) {
+        this.comparator = comparator;
+    }
+
+    void add(E value) {
+        root = insert(root, new Node<>(value, nextPriority()));
+    }
+
+    void remove(E value) {
+        root = delete(root, value);
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * Visits up to {@code count} elements in order, starting from the element of the given rank.
+     */
+    void forEachFrom(int rank, int count, Consumer<? super E> action) {
+        // ancestors whose left subtree holds the current element, they come next in order
+        var path = new ArrayDeque<Node<E>>();
+        var node = root;
+        int skip = rank;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (skip <= leftSize) {
+                path.push(node);
+                if (skip == leftSize) {
+                    break;
+                }
+                node = node.left;
+            } else {
+                skip -= leftSize + 1;
+                node = node.right;
+            }
+        }
+
+        for (int visited = 0; visited < count && !path.isEmpty(); visited++) {
+            var next = path.pop();
+            action.accept(next.value);
+            for (var child = next.right; child != null; child = child.left) {
+                path.push(child);
+            }
+        }
+    }
+
+    private Node<E> insert(Node<E> node, Node<E> added) {
+        if (node == null) {
+            return added;
+        }
+        if (comparator.compare(added.value, node.value) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<E> delete(Node<E> node, E value) {
+        if (node == null) {
+            return null;
+        }
+        int compared = comparator.compare(value, node.value);
+        if (compared == 0) {
+            return merge(node.left, node.right);
+        }
+        if (compared < 0) {
+            node.left = delete(node.left, value);
+        } else {
+            node.right = delete(node.right, value);
+        }
+        update(node);
+        return node;
+    }
+
+    private Node<E> merge(Node<E> left, Node<E> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    /**
+     * @return the left child on top, the caller updates its size
+     */
+    private Node<E> rotateRight(Node<E> node) {
+        var left = node.left;
+        node.left = left.right;
+        update(node);
+        left.right = node;
+        return left;
+    }
+
+    /**
+     * @return the right child on top, the caller updates its size
+     */
+    private Node<E> rotateLeft(Node<E> node) {
+        var right = node.right;
+        node.right = right.left;
+        update(node);
+        right.left = node;
+        return right;
+    }
+
+    private static void update(Node<?> node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
@@ -0,0 +1,89 @@
+package ru.sherb.actors;
+
+import java.time.Duration;
+import java.util.Comparator;
+
+/**
+ * Order in which a printer takes documents from its queue, every printer gets its own queue.
+ */
+@FunctionalInterface
+public interface SchedulingPolicy {
+
+    PrintQueue newQueue();
+
+    /**
+     * Documents are printed in the order of arrival.
+     */
+    static SchedulingPolicy fifo() {
+        return () -> new FifoPrintQueue();
+    }
+
+    /**
+     * The shortest {@link ru.sherb.printer.Printable#printDuration()} is printed first, documents of the same
+     * duration are printed in the order of arrival. Gives the lowest mean completion time, but long documents
+     * may wait while shorter ones keep arriving.
+     */
+    static SchedulingPolicy shortestJobFirst() {
+        Comparator<QueuedDocument> order = Comparator
+                .comparing((QueuedDocument d) -> d.document().printDuration())
+                .thenComparingLong(QueuedDocument::id);
+        return () -> new StandardPrintQueue(order);
+    }
+
+    /**
+     * The shortest {@link QueuedDocument#estimatedNanos()} is printed first, like {@link #shortestJobFirst()},
+     * but by the print time learned from the printer, so documents that declare wrong durations are ordered
+     * by how long they really take on it.
+     */
+    static SchedulingPolicy shortestEstimatedJobFirst() {
+        Comparator<QueuedDocument> order = Comparator
+                .comparingLong(QueuedDocument::estimatedNanos)
+                .thenComparingLong(QueuedDocument::id);
+        return () -> new StandardPrintQueue(order);
+    }
+
+    /**
+     * The highest {@link ru.sherb.printer.Printable#priority()} is printed first, and the priority of a waiting
+     * document grows by one for every {@code agingInterval}, so low priority documents are not starved.
+     */
+    static SchedulingPolicy priorityWithAging(Duration agingInterval) {
+        if (agingInterval.isNegative() || agingInterval.isZero()) {
+            throw new IllegalArgumentException("agingInterval must be positive: " + agingInterval);
+        }
+        long agingNanos = agingInterval.toNanos();
+        // priority + (now - enqueuedAt) / aging, without the "now" part which is the same for all documents,
+        // compared multiplied by aging, so waits shorter than an interval are told apart
+        Comparator<QueuedDocument> byAgedPriority = (a, b) -> Long.compare(
+                saturatedMultiply((long) a.document().priority() - b.document().priority(), agingNanos),
+                a.enqueuedAt() - b.enqueuedAt());
+        Comparator<QueuedDocument> order = byAgedPriority
+                .reversed()
+                .thenComparingLong(QueuedDocument::id);
+        return () -> new StandardPrintQueue(order);
+    }
+
+    /**
+     * Groups documents by {@link ru.sherb.printer.Printable#size()} and prints runs of the same size, to pay for
+     * media changeover as rarely as possible. Sizes must implement {@code equals} and {@code hashCode}.
+     *
+     * @param maxRun the longest run of one size while documents of other sizes are waiting
+     */
+    static SchedulingPolicy groupByPaperSize(int maxRun) {
+        if (maxRun < 1) {
+            throw new IllegalArgumentException("maxRun must be positive: " + maxRun);
+        }
+        return () -> new PaperSizeBatchingQueue(maxRun);
+    }
+
+    /**
+     * @return {@code x * y}, or the closest long if it overflows
+     */
+    private static long saturatedMultiply(long x, long y) {
+        long high = Math.multiplyHigh(x, y);
+        long low = x * y;
+        if ((high == 0 && low >= 0) || (high == -1 && low < 0)) {
+            return low;
+        }
+        return high < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
+}
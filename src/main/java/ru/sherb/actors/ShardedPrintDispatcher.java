@@ -0,0 +1,80 @@
+package ru.sherb.actors;
+
+import akka.actor.typed.ActorSystem;
+import akka.cluster.sharding.typed.ClusterShardingSettings;
+import akka.cluster.sharding.typed.javadsl.ClusterSharding;
+import akka.cluster.sharding.typed.javadsl.Entity;
+import akka.cluster.sharding.typed.javadsl.EntityTypeKey;
+import ru.sherb.printer.Printer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Dispatchers of a print farm, spread over the nodes of a cluster. There is one {@link PrintDispatcherImpl}
+ * per printer group (a site, a floor, ...), it lives on the node that owns the group shard and moves to
+ * another node when the owner leaves the cluster.
+ * <p>
+ * Every node of the cluster calls {@link #init} with the same groups, a {@link #facade(String)} of any node
+ * routes to the owner of the group. The owner prints with the printers it gets for the group, so they must be
+ * reachable from every node that may own it.
+ */
+public final class ShardedPrintDispatcher {
+
+    public static final EntityTypeKey<PrintDispatcherImpl.Command> TYPE_KEY =
+            EntityTypeKey.create(PrintDispatcherImpl.Command.class, "print-dispatcher");
+
+    /**
+     * @param printerGroups printers of a group by its name, called on the node that starts the group dispatcher
+     * @param settings      settings of every group, a journal of a group is kept in a subdirectory named
+     *                      by the group
+     */
+    public static ShardedPrintDispatcher init(ActorSystem<?> system,
+                                              Function<String, List<? extends Printer>> printerGroups,
+                                              PrintDispatcherSettings settings) {
+        // a dispatcher with documents in the queue must not be passivated, it would forget them
+        var shardingSettings = ClusterShardingSettings.create(system).withPassivateIdleEntityAfter(Duration.ZERO);
+
+        var sharding = ClusterSharding.get(system);
+        sharding.init(Entity.of(TYPE_KEY, ctx -> PrintDispatcherImpl.create(
+                printerGroups.apply(ctx.getEntityId()),
+                groupSettings(settings, ctx.getEntityId())))
+                .withSettings(shardingSettings));
+
+        return new ShardedPrintDispatcher(system, sharding, settings);
+    }
+
+    private static PrintDispatcherSettings groupSettings(PrintDispatcherSettings settings, String group) {
+        var journalDirectory = settings.getJournalDirectory();
+        return journalDirectory != null
+                ? settings.withJournalDirectory(journalDirectory.resolve(group))
+                : settings;
+    }
+
+    private final ActorSystem<?> system;
+    private final ClusterSharding sharding;
+    private final PrintDispatcherSettings settings;
+
+    private ShardedPrintDispatcher(ActorSystem<?> system, ClusterSharding sharding, PrintDispatcherSettings settings) {
+        this.system = system;
+        this.sharding = sharding;
+        this.settings = settings;
+    }
+
+    /**
+     * Facade of the group dispatcher, wherever it lives. Its {@link PrintDispatchActorFacade#stop()} does
+     * nothing, the actor system is owned by the caller.
+     * <p>
+     * The printers of the group are not known here, so documents of an unsupported paper size are rejected
+     * by the dispatcher instead of an {@link IllegalArgumentException}. The comparator of
+     * {@link PrintDispatchActorFacade#listPrinted(java.util.Comparator)} can not be sent to another
+     * node, only the {@link ru.sherb.printer.PrintedOrder} queries work across the cluster.
+     */
+    public PrintDispatchActorFacade facade(String group) {
+        var dispatcher = sharding.entityRefFor(TYPE_KEY, group);
+        var async = AsyncPrintDispatchActorFacade.shared(dispatcher, system.scheduler(), settings);
+
+        return new PrintDispatchActorFacade(async, () -> { });
+    }
+}
@@ -0,0 +1,47 @@
+package ru.sherb.actors;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * {@link PrintQueue} ordered by a comparator, it must tell apart documents of different ids.
+ * Documents are indexed by id, so a removal finds its document without scanning, every operation is
+ * {@code O(log n)}.
+ */
+final class StandardPrintQueue implements PrintQueue {
+
+    private final TreeSet<QueuedDocument> queue;
+    private final Map<Long, QueuedDocument> byId = new HashMap<>();
+
+    StandardPrintQueue(Comparator<QueuedDocument> order) {
+        this.queue = new TreeSet<>(order);
+    }
+
+    @Override
+    public void add(QueuedDocument document) {
+        queue.add(document);
+        byId.put(document.id(), document);
+    }
+
+    @Override
+    public QueuedDocument poll() {
+        var next = queue.pollFirst();
+        if (next != null) {
+            byId.remove(next.id());
+        }
+        return next;
+    }
+
+    @Override
+    public boolean remove(long id) {
+        var document = byId.remove(id);
+        return document != null && queue.remove(document);
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,31 @@
+package ru.sherb.actors;
+
+import lombok.Value;
+import lombok.experimental.Accessors;
+import ru.sherb.printer.PaperSize;
+import ru.sherb.printer.Printable;
+
+import java.time.Duration;
+
+/**
+ * Document restored from the {@link JobJournal}, it keeps only what the dispatcher and printers read.
+ */
+@Value
+@Accessors(fluent = true)
+class StoredDocument implements Printable {
+
+    /**
+     * Paper size which is not one of {@link ru.sherb.printer.ISOPaperSizes}.
+     */
+    @Value
+    @Accessors(fluent = true)
+    static class Size implements PaperSize {
+        int width;
+        int height;
+    }
+
+    String name;
+    PaperSize size;
+    Duration printDuration;
+    int priority;
+}
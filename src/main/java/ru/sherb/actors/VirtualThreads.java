@@ -0,0 +1,64 @@
+package ru.sherb.actors;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads of JDK 21, looked up reflectively so the project still builds and runs on older JDKs.
+ */
+final class VirtualThreads {
+
+    static final boolean AVAILABLE;
+
+    // Thread.ofVirtual(), Thread.Builder.name(String, long), Thread.Builder.factory()
+    // and Executors.newThreadPerTaskExecutor(ThreadFactory)
+    private static final MethodHandle OF_VIRTUAL;
+    private static final MethodHandle NAME;
+    private static final MethodHandle FACTORY;
+    private static final MethodHandle THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle name = null;
+        MethodHandle factory = null;
+        MethodHandle threadPerTaskExecutor = null;
+        try {
+            var lookup = MethodHandles.publicLookup();
+            var builder = Class.forName("java.lang.Thread$Builder");
+            var ofVirtualType = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualType));
+            name = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class, long.class));
+            factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class));
+            threadPerTaskExecutor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+        } catch (ReflectiveOperationException e) {
+            // older JDK
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        THREAD_PER_TASK_EXECUTOR = threadPerTaskExecutor;
+        AVAILABLE = threadPerTaskExecutor != null;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @param prefix of the thread names, they are numbered from 1
+     */
+    static ExecutorService newExecutor(String prefix) {
+        try {
+            var builder = OF_VIRTUAL.invoke();
+            var named = NAME.invoke(builder, prefix, 1L);
+            var factory = (ThreadFactory) FACTORY.invoke(named);
+            return (ExecutorService) THREAD_PER_TASK_EXECUTOR.invoke(factory);
+        } catch (Throwable e) {
+            throw new UnsupportedOperationException("Virtual threads are not available", e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.sherb.printer;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Predicate;
+
+/**
+ * Non-blocking variant of {@link PrintDispatcher}. Queries never park the calling thread,
+ * failures and timeouts complete the returned stage exceptionally instead of an empty result.
+ */
+public interface AsyncPrintDispatcher {
+
+    /**
+     * @return completes with the handle of the document when it is accepted into the queue, or fails with
+     * {@link java.util.concurrent.RejectedExecutionException} if the queue is full, or with
+     * {@link IllegalArgumentException} if no running printer supports the paper size of the document
+     */
+    CompletionStage<PrintJob> addToPrint(Printable document);
+
+    /**
+     * Enqueues documents in the order of the collection, prefer it to separate calls for bursts of documents.
+     *
+     * @return completes with the handles in the order of the collection when the documents are accepted
+     * into the queue, or fails with {@link java.util.concurrent.RejectedExecutionException} if they do not fit there,
+     * or with {@link IllegalArgumentException} if no running printer supports the paper size of any document,
+     * none of the documents is enqueued then
+     */
+    CompletionStage<List<PrintJob>> addToPrint(Collection<? extends Printable> documents);
+
+    void cancelCurrent();
+
+    /**
+     * @return completes with {@code false} if the document is already printed or cancelled
+     * @see PrintDispatcher#cancel(PrintJob)
+     */
+    CompletionStage<Boolean> cancel(PrintJob job);
+
+    /**
+     * @return completes with the number of cancelled documents
+     * @see PrintDispatcher#cancel(Predicate)
+     */
+    CompletionStage<Integer> cancel(Predicate<Printable> filter);
+
+    /**
+     * @return completes with the number of cancelled documents
+     * @see PrintDispatcher#cancelAllQueued()
+     */
+    CompletionStage<Integer> cancelAllQueued();
+
+    CompletionStage<List<Printable>> stopPrint();
+
+    default CompletionStage<List<Printable>> listPrinted(Comparator<Printable> customComparator) {
+        return listPrinted(customComparator, 0, Integer.MAX_VALUE);
+    }
+
+    CompletionStage<List<Printable>> listPrinted(Comparator<Printable> customComparator, int offset, int limit);
+
+    CompletionStage<List<Printable>> listPrinted(PrintedOrder order, int offset, int limit);
+
+    default CompletionStage<List<Printable>> listPrinted() {
+        return listPrinted(PrintedOrder.NAME, 0, Integer.MAX_VALUE);
+    }
+
+    CompletionStage<Duration> avgPrintedTime();
+
+    CompletionStage<PrintStatistics> stats();
+
+    /**
+     * @return number of accepted but not yet printed documents
+     */
+    CompletionStage<Integer> queueDepth();
+}
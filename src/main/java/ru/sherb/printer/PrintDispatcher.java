@@ -1,8 +1,10 @@
 package ru.sherb.printer;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * @author maksim
@@ -10,17 +12,77 @@ import java.util.List;
  */
 public interface PrintDispatcher {
 
-    void addToPrint(Printable document);
+    /**
+     * Blocks while the document waits for room in a full queue, if the dispatcher defers overflowing documents.
+     *
+     * @return handle of the document, it is returned as well if the dispatcher does not answer in time
+     * @throws IllegalArgumentException if no printer supports the paper size of the document
+     * @throws java.util.concurrent.RejectedExecutionException if the queue is full
+     */
+    PrintJob addToPrint(Printable document);
+
+    /**
+     * Enqueues documents in the order of the collection, prefer it to separate calls for bursts of documents.
+     *
+     * @throws IllegalArgumentException if no printer supports the paper size of any document,
+     *                                  none of the documents is enqueued then
+     * @return handles in the order of the collection
+     * @throws java.util.concurrent.RejectedExecutionException if the documents do not fit into the queue
+     */
+    List<PrintJob> addToPrint(Collection<? extends Printable> documents);
 
     void cancelCurrent();
 
+    /**
+     * Removes the document from the queue, or stops its print if it is already printing.
+     *
+     * @return {@code false} if the document is already printed or cancelled
+     */
+    boolean cancel(PrintJob job);
+
+    /**
+     * Cancels every accepted and not yet printed document that matches, like {@link #cancel(PrintJob)}.
+     *
+     * @return number of cancelled documents
+     */
+    int cancel(Predicate<Printable> filter);
+
+    /**
+     * Cancels every document that is not printing yet, current prints are finished.
+     *
+     * @return number of cancelled documents
+     */
+    int cancelAllQueued();
+
     List<Printable> stopPrint();
 
     List<Printable> listPrinted(Comparator<Printable> customComparator);
 
+    /**
+     * Page of printed documents sorted by a custom comparator, prefer {@link #listPrinted(PrintedOrder, int, int)}
+     * for big histories, it does not sort on every request.
+     */
+    List<Printable> listPrinted(Comparator<Printable> customComparator, int offset, int limit);
+
+    /**
+     * Page of printed documents in an order the dispatcher keeps ready, it costs {@code O(log n + limit)}
+     * for a history of {@code n} documents whatever the offset.
+     */
+    List<Printable> listPrinted(PrintedOrder order, int offset, int limit);
+
     default List<Printable> listPrinted() {
-        return listPrinted(Comparator.comparing(Printable::name));
+        return listPrinted(PrintedOrder.NAME, 0, Integer.MAX_VALUE);
     }
 
     Duration avgPrintedTime();
+
+    /**
+     * @return print durations of printed documents, the snapshot is cheap to request often
+     */
+    PrintStatistics stats();
+
+    /**
+     * @return number of accepted but not yet printed documents, producers may use it to throttle themselves
+     */
+    int queueDepth();
 }
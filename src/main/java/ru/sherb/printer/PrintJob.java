@@ -0,0 +1,17 @@
+package ru.sherb.printer;
+
+import lombok.Value;
+
+/**
+ * Handle of a document accepted by a {@link PrintDispatcher}, it cancels the document until it is printed.
+ */
+@Value
+public class PrintJob {
+
+    /**
+     * Id of the job, unique in its dispatcher.
+     */
+    long id;
+
+    Printable document;
+}
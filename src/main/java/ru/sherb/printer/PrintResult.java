@@ -0,0 +1,32 @@
+package ru.sherb.printer;
+
+import lombok.Value;
+
+/**
+ * Outcome of a document sent to print.
+ */
+@Value
+public class PrintResult {
+
+    public enum Status {
+        PRINTED,
+
+        /**
+         * Cancelled, dropped from a full queue or not printed because the printer was stopped.
+         */
+        CANCELLED,
+
+        /**
+         * Not accepted: the queue is full or no printer supports the paper size.
+         */
+        REJECTED,
+
+        /**
+         * Cancelled because its producer stopped waiting for the result.
+         */
+        TIMED_OUT
+    }
+
+    Printable document;
+    Status status;
+}
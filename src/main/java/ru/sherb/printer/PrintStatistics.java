@@ -0,0 +1,25 @@
+package ru.sherb.printer;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of print durations of all printed documents.
+ * Percentiles are approximate, their relative error is below 12.5%.
+ */
+@Value
+public class PrintStatistics {
+
+    public static final PrintStatistics EMPTY = new PrintStatistics(
+            0, Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO, Duration.ZERO);
+
+    long count;
+    Duration total;
+    Duration min;
+    Duration max;
+    Duration average;
+    Duration p50;
+    Duration p95;
+    Duration p99;
+}
@@ -13,4 +13,11 @@ public interface Printable {
     PaperSize size();
 
     Duration printDuration();
+
+    /**
+     * Used only by the priority scheduling, documents with a greater priority are printed earlier.
+     */
+    default int priority() {
+        return 0;
+    }
 }
@@ -0,0 +1,10 @@
+package ru.sherb.printer;
+
+/**
+ * Orders of printed documents which the dispatcher keeps ready, so pages of them are cheap to request.
+ */
+public enum PrintedOrder {
+    NAME,
+    COMPLETION_TIME,
+    PRINT_DURATION
+}
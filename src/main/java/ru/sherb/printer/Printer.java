@@ -11,4 +11,11 @@ public interface Printer {
     void print(Printable document) throws PrintException, InterruptedException;
 
     void stop();
+
+    /**
+     * Documents of unsupported sizes are never sent to the printer, by default every size is supported.
+     */
+    default boolean supports(PaperSize size) {
+        return true;
+    }
 }
@@ -0,0 +1,88 @@
+package ru.sherb.actors;
+
+import org.junit.jupiter.api.Test;
+import ru.sherb.printer.PrintedOrder;
+import ru.sherb.printer.Printable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompletedHistoryTest {
+
+    @Test
+    public void testEvictByAge() {
+        // Setup
+        var history = new CompletedHistory(HistoryRetention.maxAge(Duration.ofNanos(10)));
+        var old = new MockDocument().name("old");
+        var fresh = new MockDocument().name("fresh");
+        history.add(old, 0);
+        history.add(fresh, 5);
+
+        // When
+        history.evictExpired(12);
+
+        // Then
+        assertEquals(List.of(fresh), toList(history));
+    }
+
+    @Test
+    public void testKeepOrderAfterGrowAndEviction() {
+        // Setup
+        var history = new CompletedHistory(HistoryRetention.maxCount(100));
+        var documents = new ArrayList<Printable>();
+        for (int i = 0; i < 250; i++) {
+            documents.add(new MockDocument().name(String.valueOf(i)));
+        }
+
+        // When
+        documents.forEach(d -> history.add(d, 0));
+
+        // Then
+        assertEquals(documents.subList(150, 250), toList(history));
+    }
+
+    @Test
+    public void testPagesOfIndexedOrders() {
+        // Setup
+        var history = new CompletedHistory(HistoryRetention.maxCount(4));
+        var a = new MockDocument().name("a").printDuration(Duration.ofSeconds(3));
+        var b = new MockDocument().name("b").printDuration(Duration.ofSeconds(1));
+        var c = new MockDocument().name("c").printDuration(Duration.ofSeconds(4));
+        var d = new MockDocument().name("d").printDuration(Duration.ofSeconds(2));
+        var e = new MockDocument().name("e").printDuration(Duration.ofSeconds(5));
+        List.of(c, a, e, b, d).forEach(doc -> history.add(doc, 0)); // c is evicted
+
+        // Then
+        assertEquals(List.of(b, d), history.page(PrintedOrder.NAME, 1, 2));
+        assertEquals(List.of(b, d, a), history.page(PrintedOrder.PRINT_DURATION, 0, 3));
+        assertEquals(List.of(b, d), history.page(PrintedOrder.COMPLETION_TIME, 2, 10));
+        assertEquals(List.of(), history.page(PrintedOrder.NAME, 10, 10));
+    }
+
+    @Test
+    public void testPageOfCustomOrder() {
+        // Setup
+        var history = new CompletedHistory(HistoryRetention.unbounded());
+        var documents = new ArrayList<Printable>();
+        for (int i = 0; i < 100; i++) {
+            documents.add(new MockDocument().name(String.valueOf(i)).printDuration(Duration.ofMillis(100 - i)));
+        }
+        documents.forEach(doc -> history.add(doc, 0));
+
+        // When
+        var page = history.page(Comparator.comparing(Printable::printDuration), 5, 3);
+
+        // Then
+        assertEquals(List.of(documents.get(94), documents.get(93), documents.get(92)), page);
+    }
+
+    private static List<Printable> toList(CompletedHistory history) {
+        var result = new ArrayList<Printable>();
+        history.forEach(result::add);
+        return result;
+    }
+}
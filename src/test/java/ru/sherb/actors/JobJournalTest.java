@@ -0,0 +1,117 @@
+package ru.sherb.actors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.sherb.printer.ISOPaperSizes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JobJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRestoreAfterReopen() throws IOException {
+        // Setup
+        var journal = JobJournal.open(directory);
+        var jobs = journal.jobs();
+        var printed = new MockDocument().name("printed");
+        var printing = new MockDocument().name("printing").paperSize(ISOPaperSizes.A3);
+        var waiting = new MockDocument().name("waiting").printDuration(Duration.ofSeconds(3));
+        add(journal, 1, printed);
+        add(journal, 2, printing);
+        add(journal, 3, waiting);
+        jobs.move(2, JobTable.IN_PROGRESS);
+        journal.started(2);
+        jobs.remove(1);
+        journal.done(1);
+
+        // When
+        journal.close();
+        var restored = JobJournal.open(directory);
+
+        // Then
+        assertEquals(2, restored.jobs().size());
+        assertEquals(4, restored.nextId());
+        assertNull(restored.jobs().document(1));
+        assertEquals(JobTable.IN_PROGRESS, restored.jobs().state(2));
+        assertEquals(new StoredDocument("printing", ISOPaperSizes.A3, Duration.ZERO, 0), restored.jobs().document(2));
+        assertEquals(new StoredDocument("waiting", ISOPaperSizes.A4, Duration.ofSeconds(3), 0), restored.jobs().document(3));
+
+        // Cleanup
+        restored.close();
+    }
+
+    @Test
+    public void testSnapshotWhenJournalIsFull() throws IOException {
+        // Setup
+        var journal = JobJournal.open(directory, 256);
+        var jobs = journal.jobs();
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            add(journal, i, new MockDocument().name(String.valueOf(i)));
+            if (i % 2 == 0) {
+                jobs.remove(i);
+                journal.done(i);
+            }
+        }
+        journal.close();
+        var restored = JobJournal.open(directory, 256);
+
+        // Then
+        assertEquals(50, restored.jobs().size());
+        for (int i = 1; i < 100; i += 2) {
+            assertEquals(String.valueOf(i), restored.jobs().document(i).name());
+        }
+        var files = Files.list(directory).map(f -> f.getFileName().toString()).collect(Collectors.toSet());
+        assertEquals(2, files.size(), "old journals are deleted: " + files);
+
+        // Cleanup
+        restored.close();
+    }
+
+    @Test
+    public void testTornRecordIsIgnored() throws IOException {
+        // Setup
+        var journal = JobJournal.open(directory);
+        add(journal, 1, new MockDocument().name("complete"));
+        add(journal, 2, new MockDocument().name("torn"));
+        journal.close();
+
+        // When, the last byte of the second record is lost
+        var file = directory.resolve("journal-0.log");
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var length = ByteBuffer.allocate(Integer.BYTES);
+            channel.read(length, 0);
+            long second = Integer.BYTES * 2 + length.flip().getInt();
+            channel.read(length.clear(), second);
+            long lastByte = second + Integer.BYTES * 2 + length.flip().getInt() - 1;
+            channel.write(ByteBuffer.allocate(1), lastByte);
+        }
+        var restored = JobJournal.open(directory);
+
+        // Then
+        assertEquals(1, restored.jobs().size());
+        assertEquals("complete", restored.jobs().document(1).name());
+
+        // Cleanup
+        restored.close();
+    }
+
+    private static void add(JobJournal journal, long id, MockDocument document) {
+        journal.jobs().put(id, document, 0, JobTable.WAITING);
+        journal.add(id, document);
+    }
+}
@@ -0,0 +1,134 @@
+package ru.sherb.actors;
+
+import org.junit.jupiter.api.Test;
+import ru.sherb.printer.Printable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JobTableTest {
+
+    @Test
+    public void testMoveChangesStateInPlace() {
+        // Setup
+        var jobs = new JobTable();
+        var document = new MockDocument().name("doc");
+        jobs.put(1, document, 0, JobTable.WAITING);
+
+        // When
+        boolean queued = jobs.move(1, JobTable.QUEUED);
+        boolean backToWaiting = jobs.move(1, JobTable.WAITING);
+
+        // Then
+        assertTrue(queued);
+        assertFalse(backToWaiting);
+        assertEquals(JobTable.QUEUED, jobs.state(1));
+        assertSame(document, jobs.document(1));
+        assertEquals(0, jobs.count(JobTable.WAITING));
+        assertEquals(1, jobs.count(JobTable.QUEUED));
+    }
+
+    @Test
+    public void testClearReportsEveryJobAsFree() {
+        // Setup
+        var jobs = new JobTable();
+        var moves = new ArrayList<String>();
+        jobs.put(1, new MockDocument().name("printing"), 0, JobTable.IN_PROGRESS, null, 100);
+        jobs.put(2, new MockDocument().name("queued"), 0, JobTable.QUEUED, null, 200);
+        jobs.observe((printer, from, to, since, now) -> moves.add(from + "->" + to + " " + (now - since)));
+        moves.clear();
+
+        // When
+        jobs.clear(300);
+
+        // Then
+        assertEquals(List.of("3->0 200", "2->0 100"), moves);
+        assertEquals(0, jobs.size());
+        assertEquals(0, jobs.count(JobTable.IN_PROGRESS));
+        assertNull(jobs.document(1));
+        jobs.put(1, new MockDocument().name("again"), 0, JobTable.WAITING, null, 400);
+        assertEquals(JobTable.WAITING, jobs.state(1));
+    }
+
+    @Test
+    public void testKeepStampsOfEveryState() {
+        // Setup
+        var jobs = new JobTable();
+        var moves = new ArrayList<String>();
+        jobs.observe((printer, from, to, since, now) -> moves.add(from + "->" + to + " " + (now - since)));
+        jobs.put(1, new MockDocument().name("doc"), 0, JobTable.WAITING, null, 100);
+
+        // When, the queued event is lost
+        jobs.move(1, JobTable.IN_PROGRESS, 250);
+        // the job table of the printer grows while the job is printing
+        for (int i = 2; i < 100; i++) {
+            jobs.put(i, new MockDocument().name(String.valueOf(i)), 1, JobTable.WAITING, null, 300);
+        }
+
+        // Then
+        assertEquals(100, jobs.enteredAt(1, JobTable.WAITING));
+        assertEquals(250, jobs.enteredAt(1, JobTable.QUEUED));
+        assertEquals(250, jobs.enteredAt(1, JobTable.IN_PROGRESS));
+        assertEquals(0, jobs.enteredAt(2, JobTable.QUEUED));
+        jobs.remove(1, 400);
+        assertEquals(List.of("0->1 0", "1->3 150"), moves.subList(0, 2));
+        assertEquals("3->0 150", moves.get(moves.size() - 1));
+    }
+
+    @Test
+    public void testGrowAndRemoveKeepAllEntriesReachable() {
+        // Setup
+        var jobs = new JobTable();
+        var documents = new ArrayList<Printable>();
+        for (int i = 0; i < 10_000; i++) {
+            var document = new MockDocument().name(String.valueOf(i));
+            documents.add(document);
+            jobs.put(Long.MIN_VALUE + i, document, i % 3, JobTable.WAITING);
+        }
+
+        // When
+        for (int i = 0; i < 10_000; i += 2) {
+            jobs.remove(Long.MIN_VALUE + i);
+        }
+
+        // Then
+        assertEquals(5_000, jobs.size());
+        assertEquals(5_000, jobs.count(JobTable.WAITING));
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 2 == 0) {
+                assertNull(jobs.document(Long.MIN_VALUE + i));
+            } else {
+                assertSame(documents.get(i), jobs.document(Long.MIN_VALUE + i));
+                assertEquals(i % 3, jobs.printer(Long.MIN_VALUE + i));
+            }
+        }
+    }
+
+    @Test
+    public void testIdsOfPrinter() {
+        // Setup
+        var jobs = new JobTable();
+        jobs.put(1, new MockDocument(), 0, JobTable.WAITING);
+        jobs.put(2, new MockDocument(), 1, JobTable.WAITING);
+        jobs.put(3, new MockDocument(), 0, JobTable.IN_PROGRESS);
+
+        // When
+        long[] assigned = jobs.idsOf(0);
+
+        // Then
+        Arrays.sort(assigned);
+        assertArrayEquals(new long[]{1, 3}, assigned);
+
+        List<Long> visited = new ArrayList<>();
+        jobs.forEach((id, state, document, printer) -> visited.add(id));
+        assertEquals(3, visited.size());
+    }
+}
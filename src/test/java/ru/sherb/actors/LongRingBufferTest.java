@@ -0,0 +1,59 @@
+package ru.sherb.actors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongRingBufferTest {
+
+    @Test
+    public void testKeepOrderWhenGrowingAcrossTheWrap() {
+        // Setup, the head is moved so the ring wraps before it grows
+        var ring = new LongRingBuffer();
+        for (long i = 0; i < 10; i++) {
+            ring.add(i);
+        }
+        for (int i = 0; i < 10; i++) {
+            ring.poll();
+        }
+
+        // When
+        for (long i = 0; i < 40; i++) {
+            ring.add(i);
+        }
+        ring.removeIf(value -> value % 3 == 0);
+
+        // Then
+        var polled = new ArrayList<Long>();
+        while (!ring.isEmpty()) {
+            polled.add(ring.poll());
+        }
+        var expected = new ArrayList<Long>();
+        for (long i = 0; i < 40; i++) {
+            if (i % 3 != 0) {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected, polled);
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    public void testPollEmpty() {
+        // Setup
+        var ring = new LongRingBuffer();
+        ring.add(1);
+        ring.removeIf(value -> true);
+
+        // Then
+        assertEquals(0, ring.size());
+        assertThrows(NoSuchElementException.class, ring::poll);
+        ring.add(2);
+        assertEquals(2, ring.poll());
+    }
+}
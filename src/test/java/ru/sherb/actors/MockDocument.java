@@ -17,6 +17,7 @@ public class MockDocument implements Printable {
     private String name = "";
     private PaperSize paperSize = ISOPaperSizes.A4;
     private Duration printDuration = Duration.ZERO;
+    private int priority = 0;
 
     @Override
     public String name() {
@@ -33,6 +34,11 @@ public class MockDocument implements Printable {
         return printDuration;
     }
 
+    @Override
+    public int priority() {
+        return priority;
+    }
+
     public MockDocument name(String name) {
         this.name = name;
         return this;
@@ -47,4 +53,9 @@ public class MockDocument implements Printable {
         this.printDuration = printDuration;
         return this;
     }
+
+    public MockDocument priority(int priority) {
+        this.priority = priority;
+        return this;
+    }
 }
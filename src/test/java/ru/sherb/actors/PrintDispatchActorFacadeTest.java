@@ -1,21 +1,45 @@
 package ru.sherb.actors;
 
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.stream.javadsl.Sink;
+import akka.stream.javadsl.Source;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.junit.jupiter.api.io.TempDir;
 import ru.sherb.printer.ISOPaperSizes;
+import ru.sherb.printer.PaperSize;
+import ru.sherb.printer.PrintResult;
+import ru.sherb.printer.PrintedOrder;
 import ru.sherb.printer.Printable;
+import ru.sherb.printer.Printer;
 
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * @author maksim
@@ -185,6 +209,70 @@ class PrintDispatchActorFacadeTest {
         printDispatcher.stop();
     }
 
+    @Test
+    public void testCancelById() throws InterruptedException, ExecutionException {
+        // Setup
+        var printer = new MockPrinter();
+        var printDispatcher = PrintDispatchActorFacade.start(printer);
+        var printing = printDispatcher.addToPrint(new MockDocument().name("printing"));
+        var queued = printDispatcher.addToPrint(new MockDocument().name("queued"));
+        var printed = new MockDocument().name("printed");
+        printDispatcher.addToPrint(printed);
+        printer.waitForStartPrinting();
+
+        // When
+        boolean cancelledQueued = printDispatcher.cancel(queued);
+
+        // Then, the job is released without waiting for the printer
+        assertTrue(cancelledQueued);
+        assertFalse(printDispatcher.cancel(queued));
+        assertEquals(2, printDispatcher.queueDepth());
+
+        // When
+        boolean cancelledPrinting = printDispatcher.cancel(printing);
+        printer.waitForCancel();
+
+        // Then
+        assertTrue(cancelledPrinting);
+        assertEquals(printed, printer.printedDocument());
+        printDispatcher.waitForAllComplete();
+        assertEquals(List.of(printed), printDispatcher.listPrinted());
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testCancelMatchingAndAllQueued() throws InterruptedException, ExecutionException {
+        // Setup
+        var printer = new MockPrinter();
+        var printDispatcher = PrintDispatchActorFacade.start(printer);
+        var printing = new MockDocument().name("printing");
+        printDispatcher.addToPrint(printing);
+        printer.waitForStartPrinting();
+        var jobs = printDispatcher.addToPrint(List.of(
+                new MockDocument().name("draft 1"),
+                new MockDocument().name("report"),
+                new MockDocument().name("draft 2")));
+
+        // When
+        int drafts = printDispatcher.cancel(d -> d.name().startsWith("draft"));
+        int queued = printDispatcher.cancelAllQueued();
+
+        // Then, the printing document is finished
+        assertEquals(3, jobs.size());
+        assertEquals(2, drafts);
+        assertEquals(1, queued);
+        assertEquals(1, printDispatcher.queueDepth());
+        assertEquals(0, printDispatcher.cancel(jobs));
+        printer.skip();
+        printDispatcher.waitForAllComplete();
+        assertEquals(List.of(printing), printDispatcher.listPrinted());
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
     @Test
     public void testGetPrintedOrderDocs() throws InterruptedException, ExecutionException, TimeoutException {
         // Setup
@@ -337,4 +425,842 @@ class PrintDispatchActorFacadeTest {
         // Cleanup
         printDispatcher.stop();
     }
+
+    @Test
+    public void testPrintOnPrinterPool() throws InterruptedException {
+        // Setup
+        var first = new MockPrinter();
+        var second = new MockPrinter();
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(first, second));
+        var a = new MockDocument().name("a");
+        var b = new MockDocument().name("b");
+
+        // When
+        printDispatcher.addToPrint(a);
+        printDispatcher.addToPrint(b);
+
+        // Then
+        first.waitForStartPrinting();
+        second.waitForStartPrinting();
+        assertEquals(a, first.printedDocument());
+        assertEquals(b, second.printedDocument());
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testStopOnePrinterInPool() throws InterruptedException {
+        // Setup
+        var first = new MockPrinter();
+        var second = new MockPrinter();
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(first, second));
+        var a = new MockDocument().name("a");
+        var b = new MockDocument().name("b");
+        var c = new MockDocument().name("c");
+        printDispatcher.addToPrint(a); // first printer
+        printDispatcher.addToPrint(b); // second printer
+        printDispatcher.addToPrint(c); // first printer
+        first.waitForStartPrinting();
+
+        // When
+        var notPrinted = printDispatcher.stopPrint(0);
+
+        // Then
+        assertEquals(List.of(a, c), notPrinted);
+        assertEquals(b, second.printedDocument());
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testPrintManyDocumentsWithSameName() throws InterruptedException, ExecutionException {
+        // Setup
+        var printer = new Printer() {
+            @Override
+            public void print(Printable document) { }
+
+            @Override
+            public void stop() { }
+        };
+        var printDispatcher = PrintDispatchActorFacade.start(printer);
+
+        // When
+        for (int i = 0; i < 100_000; i++) {
+            printDispatcher.addToPrint(new MockDocument().name("invoice.pdf"));
+        }
+        printDispatcher.waitForAllComplete(Duration.ofSeconds(30));
+
+        // Then
+        assertEquals(100_000, printDispatcher.listPrinted().size());
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testEvictOldestPrintedDocuments() throws InterruptedException, ExecutionException {
+        // Setup
+        var printer = new MockPrinter();
+        var settings = PrintDispatcherSettings.defaults().withHistoryRetention(HistoryRetention.maxCount(2));
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(printer), settings);
+        var first = new MockDocument().name("a").printDuration(Duration.ofSeconds(1));
+        var second = new MockDocument().name("b").printDuration(Duration.ofSeconds(2));
+        var third = new MockDocument().name("c").printDuration(Duration.ofSeconds(3));
+
+        printDispatcher.addToPrint(first);
+        printDispatcher.addToPrint(second);
+        printDispatcher.addToPrint(third);
+        printer.waitForStartPrinting();
+        printer.skip();
+        printer.skip();
+        printer.skip();
+        printDispatcher.waitForAllComplete();
+
+        // When
+        var printed = printDispatcher.listPrinted();
+        var avg = printDispatcher.avgPrintedTime();
+
+        // Then
+        assertEquals(List.of(second, third), printed);
+        assertEquals(2000, avg.toMillis());
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testStatsOfPrintedDocuments() throws InterruptedException, ExecutionException {
+        // Setup
+        var printer = new MockPrinter();
+        var printDispatcher = PrintDispatchActorFacade.start(printer);
+        printDispatcher.addToPrint(new MockDocument().name("a").printDuration(Duration.ofSeconds(1)));
+        printDispatcher.addToPrint(new MockDocument().name("b").printDuration(Duration.ofSeconds(2)));
+        printDispatcher.addToPrint(new MockDocument().name("c").printDuration(Duration.ofSeconds(3)));
+        printer.waitForStartPrinting();
+        printer.skip();
+        printer.skip();
+        printer.skip();
+        printDispatcher.waitForAllComplete();
+
+        // When
+        var stats = printDispatcher.stats();
+
+        // Then
+        assertEquals(3, stats.getCount());
+        assertEquals(6000, stats.getTotal().toMillis());
+        assertEquals(1000, stats.getMin().toMillis());
+        assertEquals(3000, stats.getMax().toMillis());
+        assertEquals(2000, stats.getAverage().toMillis());
+        var p50 = stats.getP50().toMillis();
+        assertTrue(p50 >= 2000 && p50 < 2250, () -> "p50 is " + p50);
+        assertEquals(3000, stats.getP99().toMillis());
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testListPrintedPage() throws InterruptedException, ExecutionException {
+        // Setup
+        var printer = new MockPrinter();
+        var printDispatcher = PrintDispatchActorFacade.start(printer);
+        var first = new MockDocument().name("b").printDuration(Duration.ofSeconds(2));
+        var second = new MockDocument().name("a").printDuration(Duration.ofSeconds(3));
+        var third = new MockDocument().name("c").printDuration(Duration.ofSeconds(1));
+        printDispatcher.addToPrint(first);
+        printDispatcher.addToPrint(second);
+        printDispatcher.addToPrint(third);
+        printer.waitForStartPrinting();
+        printer.skip();
+        printer.skip();
+        printer.skip();
+        printDispatcher.waitForAllComplete();
+
+        // When
+        var byName = printDispatcher.listPrinted(PrintedOrder.NAME, 0, 2);
+        var byCompletion = printDispatcher.listPrinted(PrintedOrder.COMPLETION_TIME, 1, 5);
+        var byDuration = printDispatcher.listPrinted(Comparator.comparing(Printable::printDuration), 2, 1);
+
+        // Then
+        assertEquals(List.of(second, first), byName);
+        assertEquals(List.of(second, third), byCompletion);
+        assertEquals(List.of(second), byDuration);
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testAsyncQueries() throws Exception {
+        // Setup
+        var printer = new MockPrinter();
+        var facade = PrintDispatchActorFacade.start(printer);
+        var printDispatcher = facade.async();
+        var document = new MockDocument().name("a").printDuration(Duration.ofSeconds(1));
+        printDispatcher.addToPrint(document);
+        printer.waitForStartPrinting();
+        printer.skip();
+        printDispatcher.allComplete(Duration.ofSeconds(1)).toCompletableFuture().get();
+
+        // When
+        var printed = printDispatcher.listPrinted().toCompletableFuture().get(1, TimeUnit.SECONDS);
+        var avg = printDispatcher.avgPrintedTime().toCompletableFuture().get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals(List.of(document), printed);
+        assertEquals(1000, avg.toMillis());
+
+        // Cleanup
+        facade.stop();
+    }
+
+    @Test
+    public void testAsyncQueryFailsOnTimeout() throws Exception {
+        // Setup
+        var printer = new MockPrinter();
+        var printDispatcher = PrintDispatchActorFacade.start(printer);
+        printDispatcher.addToPrint(new MockDocument().name("a"));
+        printDispatcher.addToPrint(new MockDocument().name("b"));
+        printer.waitForStartPrinting();
+        printer.skip();
+        printer.skip();
+        printDispatcher.waitForAllComplete();
+        Comparator<Printable> slowComparator = (a, b) -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return a.name().compareTo(b.name());
+        };
+
+        // When
+        var printed = printDispatcher.async()
+                .withTimeout(Duration.ofMillis(100))
+                .listPrinted(slowComparator)
+                .toCompletableFuture();
+
+        // Then
+        var error = assertThrows(ExecutionException.class, () -> printed.get(1, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof TimeoutException, error::toString);
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testPrintBatchOnPrinterPool() throws InterruptedException, ExecutionException {
+        // Setup
+        var first = new MockPrinter();
+        var second = new MockPrinter();
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(first, second));
+        var a = new MockDocument().name("a");
+        var b = new MockDocument().name("b");
+        var c = new MockDocument().name("c");
+
+        // When
+        printDispatcher.addToPrint(List.of(a, b, c));
+
+        // Then
+        first.waitForStartPrinting();
+        assertEquals(a, first.printedDocument());
+        assertEquals(b, second.printedDocument());
+        assertEquals(c, first.printedDocument());
+
+        printDispatcher.waitForAllComplete();
+        assertEquals(List.of(a, b, c), printDispatcher.listPrinted());
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testRouteByPaperSize() throws InterruptedException {
+        // Setup
+        var plotter = new MockPrinter() {
+            @Override
+            public boolean supports(PaperSize size) {
+                return Set.of(ISOPaperSizes.A0, ISOPaperSizes.A1, ISOPaperSizes.A2).contains(size);
+            }
+        };
+        var desktop = new MockPrinter() {
+            @Override
+            public boolean supports(PaperSize size) {
+                return Set.of(ISOPaperSizes.A4, ISOPaperSizes.A5).contains(size);
+            }
+        };
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(plotter, desktop));
+        var letter = new MockDocument().name("letter").paperSize(ISOPaperSizes.A4);
+        var drawing = new MockDocument().name("drawing").paperSize(ISOPaperSizes.A1);
+        var label = new MockDocument().name("label").paperSize(ISOPaperSizes.A10);
+
+        // When
+        printDispatcher.addToPrint(letter);
+        printDispatcher.addToPrint(drawing);
+
+        // Then
+        assertEquals(letter, desktop.printedDocument());
+        assertEquals(drawing, plotter.printedDocument());
+        assertThrows(IllegalArgumentException.class, () -> printDispatcher.addToPrint(label));
+        assertThrows(IllegalArgumentException.class, () -> printDispatcher.addToPrint(List.of(letter, label)));
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testRejectWholeBatchWhenItsPrinterIsStopped() {
+        // Setup
+        var plotter = new MockPrinter() {
+            @Override
+            public boolean supports(PaperSize size) {
+                return size == ISOPaperSizes.A1;
+            }
+        };
+        var desktop = new MockPrinter() {
+            @Override
+            public boolean supports(PaperSize size) {
+                return size == ISOPaperSizes.A4;
+            }
+        };
+        var settings = PrintDispatcherSettings.defaults().withCapacity(10);
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(plotter, desktop), settings);
+        printDispatcher.stopPrint(0);
+        var letter = new MockDocument().name("letter");
+        var drawing = new MockDocument().name("drawing").paperSize(ISOPaperSizes.A1);
+
+        // When
+        Executable batch = () -> printDispatcher.addToPrint(List.of(letter, drawing));
+
+        // Then, the supported letter is not enqueued either
+        assertThrows(IllegalArgumentException.class, batch);
+        assertThrows(IllegalArgumentException.class, () -> printDispatcher.addToPrint(drawing));
+        assertEquals(0, printDispatcher.queueDepth());
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testRejectWhenQueueIsFull() {
+        // Setup
+        var printer = new MockPrinter();
+        var settings = PrintDispatcherSettings.defaults().withCapacity(2);
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(printer), settings);
+        printDispatcher.addToPrint(new MockDocument().name("a"));
+        printDispatcher.addToPrint(new MockDocument().name("b"));
+
+        // When
+        Executable overflow = () -> printDispatcher.addToPrint(new MockDocument().name("c"));
+
+        // Then
+        assertThrows(RejectedExecutionException.class, overflow);
+        assertEquals(2, printDispatcher.queueDepth());
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testRouteByMeasuredPrintTime() throws Exception {
+        // Setup, the drivers print for different time than the documents declare
+        var slow = new SleepingPrinter(Duration.ofMillis(40));
+        var fast = new SleepingPrinter(Duration.ofMillis(1));
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(slow, fast));
+        printDispatcher.addToPrint(List.of(
+                new MockDocument().name("warm up slow").printDuration(Duration.ofMillis(1)),
+                new MockDocument().name("warm up fast").printDuration(Duration.ofMillis(1))));
+        printDispatcher.waitForAllComplete();
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            printDispatcher.addToPrint(new MockDocument().name(String.valueOf(i)).printDuration(Duration.ofMillis(1)));
+        }
+        printDispatcher.waitForAllComplete();
+        var stats = printDispatcher.printerStats();
+
+        // Then, the fast printer finishes every document before the idle slow one would
+        assertEquals(1, slow.printed.get(), "documents of the slow printer");
+        assertEquals(5, fast.printed.get(), "documents of the fast printer");
+        assertEquals(1, stats.get(0).getPrintTime().getCount());
+        assertTrue(stats.get(0).getPrintTime().getMin().toMillis() >= 40, stats::toString);
+        assertTrue(stats.get(0).getSlowdown() > 10, stats::toString);
+        assertEquals(5, stats.get(1).getPrintTime().getCount());
+        assertEquals(1, printDispatcher.avgPrintedTime().toMillis(), "declared durations are averaged");
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testEstimateCompletionOfQueuedDocuments() throws Exception {
+        // Setup, the driver declares a tenth of the real print time
+        var printer = new SleepingPrinter(Duration.ofMillis(50));
+        var printDispatcher = PrintDispatchActorFacade.start(printer);
+        printDispatcher.addToPrint(new MockDocument().name("warm up").printDuration(Duration.ofMillis(5)));
+        printDispatcher.waitForAllComplete();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            printDispatcher.addToPrint(new MockDocument().name(String.valueOf(i)).printDuration(Duration.ofMillis(5)));
+        }
+        var estimates = printDispatcher.estimates();
+
+        // Then
+        assertEquals(3, estimates.size(), estimates::toString);
+        assertTrue(estimates.stream().allMatch(e -> e.getPrintTime().toMillis() >= 50), estimates::toString);
+        assertEquals("2", estimates.get(2).getDocument().name());
+        assertTrue(estimates.get(2).getCompletion().toMillis() >= 100, estimates::toString);
+        assertTrue(estimates.get(1).getCompletion().compareTo(estimates.get(2).getCompletion()) < 0);
+
+        // Cleanup
+        printDispatcher.waitForAllComplete();
+        printDispatcher.stop();
+    }
+
+    private static final class SleepingPrinter implements Printer {
+        final AtomicInteger printed = new AtomicInteger();
+        private final Duration duration;
+
+        SleepingPrinter(Duration duration) {
+            this.duration = duration;
+        }
+
+        @Override
+        public void print(Printable document) throws InterruptedException {
+            Thread.sleep(duration.toMillis());
+            printed.incrementAndGet();
+        }
+
+        @Override
+        public void stop() { }
+    }
+
+    @Test
+    public void testReportMetrics() throws Exception {
+        // Setup
+        var printer = new MockPrinter();
+        var settings = PrintDispatcherSettings.defaults().withCapacity(2);
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(printer), settings);
+        printDispatcher.addToPrint(new MockDocument().name("a"));
+        printDispatcher.addToPrint(new MockDocument().name("b"));
+        printer.waitForStartPrinting();
+        assertThrows(RejectedExecutionException.class, () -> printDispatcher.addToPrint(new MockDocument().name("c")));
+
+        // When
+        var printing = awaitMetrics(printDispatcher, m -> m.getInProgress() == 1 && m.getQueued() == 1);
+        printer.printedDocument();
+        printer.printedDocument();
+        printDispatcher.waitForAllComplete();
+        var done = printDispatcher.metrics();
+
+        // Then
+        assertEquals(0, printing.getWaiting());
+        assertEquals(1, printing.getRejected());
+        assertEquals(0, done.getInProgress() + done.getQueued() + done.getWaiting(), done::toString);
+        assertEquals(2, done.getPrinted());
+        assertEquals(2, done.getTimeWaiting().getCount());
+        assertEquals(2, done.getTimeInProgress().getCount());
+        assertTrue(done.getPrinterBusyRatios().get(0) > 0, done::toString);
+
+        var server = ManagementFactory.getPlatformMBeanServer();
+        var registered = server.queryNames(new ObjectName("ru.sherb.actors:type=PrintDispatcher,*"), null);
+        assertTrue(registered.stream().anyMatch(name -> rejectedJobs(server, name) == 1), registered::toString);
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testReportMetricsAfterStopPrint() throws Exception {
+        // Setup
+        var printer = new MockPrinter();
+        var printDispatcher = PrintDispatchActorFacade.start(printer);
+        printDispatcher.addToPrint(new MockDocument().name("a"));
+        printDispatcher.addToPrint(new MockDocument().name("b"));
+        printer.waitForStartPrinting();
+        awaitMetrics(printDispatcher, m -> m.getInProgress() == 1 && m.getQueued() == 1);
+
+        // When
+        printDispatcher.stopPrint();
+        var stopped = printDispatcher.metrics();
+        Thread.sleep(50);
+        var later = printDispatcher.metrics();
+
+        // Then, no job is left in a state and the printer is not busy any more
+        assertEquals(0, stopped.getInProgress() + stopped.getQueued() + stopped.getWaiting(), stopped::toString);
+        assertEquals(2, stopped.getCancelled());
+        assertTrue(later.getPrinterBusyRatios().get(0) < stopped.getPrinterBusyRatios().get(0), later::toString);
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    private static DispatcherMetricsSnapshot awaitMetrics(PrintDispatchActorFacade dispatcher,
+                                                          Predicate<DispatcherMetricsSnapshot> condition)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        var metrics = dispatcher.metrics();
+        while (!condition.test(metrics)) {
+            assertTrue(System.nanoTime() < deadline, metrics::toString);
+            Thread.sleep(1);
+            metrics = dispatcher.metrics();
+        }
+        return metrics;
+    }
+
+    private static long rejectedJobs(MBeanServer server, ObjectName name) {
+        try {
+            return (Long) server.getAttribute(name, "RejectedJobs");
+        } catch (JMException e) {
+            return -1;
+        }
+    }
+
+    @Test
+    public void testDropOldestWhenQueueIsFull() throws InterruptedException, ExecutionException {
+        // Setup
+        var printer = new MockPrinter();
+        var settings = PrintDispatcherSettings.defaults()
+                .withCapacity(2)
+                .withOverflowStrategy(OverflowStrategy.DROP_OLDEST);
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(printer), settings);
+        var printing = new MockDocument().name("printing");
+        var dropped = new MockDocument().name("dropped");
+        var fresh = new MockDocument().name("fresh");
+        printDispatcher.addToPrint(printing);
+        printDispatcher.addToPrint(dropped);
+        printer.waitForStartPrinting();
+
+        // When
+        printDispatcher.addToPrint(fresh);
+
+        // Then
+        assertEquals(2, printDispatcher.queueDepth());
+        assertEquals(printing, printer.printedDocument());
+        assertEquals(fresh, printer.printedDocument());
+        printDispatcher.waitForAllComplete();
+        assertEquals(List.of(fresh, printing), printDispatcher.listPrinted());
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testPrintInOrderOfSchedulingPolicy() throws InterruptedException, ExecutionException {
+        // Setup
+        var printer = new MockPrinter();
+        var settings = PrintDispatcherSettings.defaults()
+                .withSchedulingPolicy(SchedulingPolicy.priorityWithAging(Duration.ofHours(1)));
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(printer), settings);
+        var printing = new MockDocument().name("printing");
+        var low = new MockDocument().name("low").priority(0);
+        var high = new MockDocument().name("high").priority(5);
+        var middle = new MockDocument().name("middle").priority(2);
+        printDispatcher.addToPrint(printing);
+        printer.waitForStartPrinting();
+
+        // When
+        printDispatcher.addToPrint(List.of(low, high, middle));
+
+        // Then
+        assertEquals(printing, printer.printedDocument());
+        assertEquals(high, printer.printedDocument());
+        assertEquals(middle, printer.printedDocument());
+        assertEquals(low, printer.printedDocument());
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testDeferWhenQueueIsFull() throws InterruptedException, ExecutionException, TimeoutException {
+        // Setup
+        var printer = new MockPrinter();
+        var settings = PrintDispatcherSettings.defaults()
+                .withCapacity(1)
+                .withOverflowStrategy(OverflowStrategy.DEFER);
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(printer), settings);
+        var first = new MockDocument().name("first");
+        var deferred = new MockDocument().name("deferred");
+        printDispatcher.addToPrint(first);
+
+        // When
+        var admission = printDispatcher.async().addToPrint(deferred).toCompletableFuture();
+
+        // Then
+        assertEquals(2, printDispatcher.queueDepth());
+        assertFalse(admission.isDone());
+
+        assertEquals(first, printer.printedDocument());
+        admission.get(1, TimeUnit.SECONDS);
+        assertEquals(deferred, printer.printedDocument());
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testPrintFromStreamWithBackpressure() throws InterruptedException, ExecutionException {
+        // Setup
+        var printer = new Printer() {
+            @Override
+            public void print(Printable document) throws InterruptedException {
+                Thread.sleep(1);
+            }
+
+            @Override
+            public void stop() { }
+
+            @Override
+            public boolean supports(PaperSize size) {
+                return size == ISOPaperSizes.A4;
+            }
+        };
+        var settings = PrintDispatcherSettings.defaults().withCapacity(2);
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(printer), settings);
+        var source = ActorTestKit.create();
+        var documents = new ArrayList<Printable>();
+        for (int i = 0; i < 50; i++) {
+            documents.add(new MockDocument().name(String.valueOf(i)));
+        }
+        var unsupported = new MockDocument().name("unsupported").paperSize(ISOPaperSizes.A3);
+        documents.add(unsupported);
+
+        // When
+        var results = Source.from(documents)
+                .via(printDispatcher.async().printFlow(Duration.ofSeconds(5)))
+                .runWith(Sink.seq(), source.system())
+                .toCompletableFuture()
+                .get();
+
+        // Then, the stream never overflows the queue of two documents
+        assertEquals(documents.size(), results.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(new PrintResult(documents.get(i), PrintResult.Status.PRINTED), results.get(i));
+        }
+        assertEquals(new PrintResult(unsupported, PrintResult.Status.REJECTED), results.get(50));
+
+        // Cleanup
+        source.shutdownTestKit();
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testCancelStreamedDocumentAfterResultTimeout() throws InterruptedException, ExecutionException {
+        // Setup
+        var printer = new MockPrinter();
+        var printDispatcher = PrintDispatchActorFacade.start(printer);
+        var source = ActorTestKit.create();
+        var stuck = new MockDocument().name("stuck");
+
+        // When
+        var results = Source.single((Printable) stuck)
+                .via(printDispatcher.async().printFlow(Duration.ofMillis(200)))
+                .runWith(Sink.seq(), source.system())
+                .toCompletableFuture()
+                .get();
+        printer.waitForCancel();
+
+        // Then, the stream goes on and the document does not print after its result
+        assertEquals(List.of(new PrintResult(stuck, PrintResult.Status.TIMED_OUT)), results);
+        assertEquals(0, printDispatcher.queueDepth());
+
+        // Cleanup
+        source.shutdownTestKit();
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testResultTimeoutAfterStopPrint() throws InterruptedException, ExecutionException, TimeoutException {
+        // Setup, two printed documents let a blocking comparator hold the dispatcher
+        var printer = new MockPrinter();
+        var printDispatcher = PrintDispatchActorFacade.start(printer);
+        var source = ActorTestKit.create();
+        printDispatcher.addToPrint(List.of(new MockDocument().name("a"), new MockDocument().name("b")));
+        printer.waitForStartPrinting();
+        printer.printedDocument();
+        printer.waitForStartPrinting();
+        printer.printedDocument();
+        printDispatcher.waitForAllComplete();
+        var results = Source.single((Printable) new MockDocument().name("stuck"))
+                .via(printDispatcher.async().printFlow(Duration.ofMillis(200)))
+                .runWith(Sink.seq(), source.system());
+        printer.waitForStartPrinting();
+        var blocked = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        printDispatcher.async().listPrinted((x, y) -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return x.name().compareTo(y.name());
+        }, 0, 10);
+        assertTrue(blocked.await(1, TimeUnit.SECONDS));
+
+        // When, the dispatcher gets the cancel of the timed out result after the stop
+        printDispatcher.async().stopPrint();
+        try {
+            results.toCompletableFuture().get(1, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+        }
+
+        // Then, the stopped dispatcher still answers, a failed one takes its actor system down
+        assertEquals(0, printDispatcher.async().queueDepth().toCompletableFuture().get(1, TimeUnit.SECONDS));
+
+        // Cleanup
+        source.shutdownTestKit();
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testResumeJournaledDocumentsAfterRestart(@TempDir Path journal) throws InterruptedException {
+        // Setup
+        var settings = PrintDispatcherSettings.defaults().withJournalDirectory(journal);
+        var printer = new MockPrinter();
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(printer), settings);
+        printDispatcher.addToPrint(new MockDocument().name("printed"));
+        printDispatcher.addToPrint(new MockDocument().name("first"));
+        printDispatcher.addToPrint(new MockDocument().name("second"));
+        printer.skip();
+        printer.waitForStartPrinting();
+        printDispatcher.stopPrint();
+        printDispatcher.stop();
+
+        // When
+        var restartedPrinter = new MockPrinter();
+        var restarted = PrintDispatchActorFacade.start(List.of(restartedPrinter), settings);
+
+        // Then
+        assertEquals("first", restartedPrinter.printedDocument().name());
+        assertEquals("second", restartedPrinter.printedDocument().name());
+
+        // Cleanup
+        restarted.stop();
+    }
+
+    @Test
+    public void testShareActorSystemBetweenDispatchers() {
+        // Setup
+        var system = ActorTestKit.create();
+        var printer = new Printer() {
+            @Override
+            public void print(Printable document) { }
+
+            @Override
+            public void stop() { }
+        };
+        var dispatchers = new ArrayList<PrintDispatchActorFacade>();
+        for (int i = 0; i < 100; i++) {
+            dispatchers.add(PrintDispatchActorFacade.start(system.system(), List.of(printer), PrintDispatcherSettings.defaults()));
+        }
+
+        // When
+        for (int i = 0; i < dispatchers.size(); i++) {
+            dispatchers.get(i).addToPrint(new MockDocument().name(String.valueOf(i)));
+        }
+        dispatchers.get(0).stop();
+        dispatchers.get(1).addToPrint(new MockDocument().name("after stop"));
+
+        // Then, every dispatcher has printed only its own documents
+        for (int i = 1; i < dispatchers.size(); i++) {
+            var dispatcher = dispatchers.get(i);
+            dispatcher.async().allComplete(Duration.ofSeconds(5)).toCompletableFuture().join();
+            var names = dispatcher.listPrinted(PrintedOrder.COMPLETION_TIME, 0, 10).stream()
+                    .map(Printable::name)
+                    .collect(Collectors.toList());
+            assertEquals(i == 1 ? List.of("1", "after stop") : List.of(String.valueOf(i)), names);
+        }
+
+        // Cleanup
+        dispatchers.forEach(PrintDispatchActorFacade::stop);
+        system.shutdownTestKit();
+    }
+
+    @Test
+    public void testPrintOnDedicatedThreadPool() throws InterruptedException {
+        // Setup
+        var threads = ConcurrentHashMap.<String>newKeySet();
+        var printer = new Printer() {
+            @Override
+            public void print(Printable document) throws InterruptedException {
+                threads.add(Thread.currentThread().getName());
+                Thread.sleep(1);
+            }
+
+            @Override
+            public void stop() { }
+        };
+        var settings = PrintDispatcherSettings.defaults().withPrinterExecutor(PrinterExecutor.fixedThreadPool(2));
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(printer, printer, printer), settings);
+
+        // When
+        for (int i = 0; i < 30; i++) {
+            printDispatcher.addToPrint(new MockDocument().name(String.valueOf(i)));
+        }
+        printDispatcher.async().allComplete(Duration.ofSeconds(5)).toCompletableFuture().join();
+        var stats = printDispatcher.executorStats();
+
+        // Then, three printers share two threads
+        assertTrue(threads.size() <= 2, threads::toString);
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("dispatcher-user-printing-")), threads::toString);
+        assertEquals(2, stats.getMaxThreads());
+        assertTrue(stats.getPeakBusyThreads() >= 1 && stats.getPeakBusyThreads() <= 2, stats::toString);
+        assertTrue(stats.getCompletedTasks() > 0 && stats.getCompletedTasks() <= 30, stats::toString);
+
+        // Cleanup
+        printDispatcher.stop();
+    }
+
+    @Test
+    public void testCancelByInterruptOnDedicatedThreadPool() throws InterruptedException {
+        assertCancelledByInterrupt(PrinterExecutor.fixedThreadPool(1));
+    }
+
+    @Test
+    public void testCancelByInterruptOnVirtualThreads() throws InterruptedException {
+        assumeTrue(PrinterExecutor.isVirtualThreadsAvailable(), "virtual threads require JDK 21");
+        assertCancelledByInterrupt(PrinterExecutor.virtualThreads());
+    }
+
+    /**
+     * The driver ignores {@link Printer#stop()}, only the interrupt ends its print.
+     */
+    private static void assertCancelledByInterrupt(PrinterExecutor executor) throws InterruptedException {
+        // Setup
+        var started = new CountDownLatch(1);
+        var printer = new Printer() {
+            @Override
+            public void print(Printable document) throws InterruptedException {
+                if (document.name().equals("stuck")) {
+                    started.countDown();
+                    new CountDownLatch(1).await();
+                }
+            }
+
+            @Override
+            public void stop() { }
+        };
+        var settings = PrintDispatcherSettings.defaults().withPrinterExecutor(executor);
+        var printDispatcher = PrintDispatchActorFacade.start(List.of(printer), settings);
+        printDispatcher.addToPrint(new MockDocument().name("stuck"));
+        printDispatcher.addToPrint(new MockDocument().name("printed"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // When
+        printDispatcher.cancelCurrent();
+
+        // Then
+        printDispatcher.async().allComplete(Duration.ofSeconds(5)).toCompletableFuture().join();
+        var printed = printDispatcher.listPrinted().stream().map(Printable::name).collect(Collectors.toList());
+        assertEquals(List.of("printed"), printed);
+
+        // Cleanup
+        printDispatcher.stop();
+    }
 }
@@ -0,0 +1,112 @@
+package ru.sherb.actors;
+
+import akka.actor.ExtendedActorSystem;
+import akka.actor.testkit.typed.javadsl.ActorTestKit;
+import akka.actor.typed.javadsl.Adapter;
+import akka.serialization.SerializationExtension;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.sherb.printer.ISOPaperSizes;
+import ru.sherb.printer.PrintResult;
+import ru.sherb.printer.PrintStatistics;
+import ru.sherb.printer.PrintedOrder;
+import ru.sherb.printer.Printable;
+
+import java.io.NotSerializableException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrintDispatcherSerializerTest {
+
+    // the test kit reads application-test.conf by default
+    private final ActorTestKit testKit = ActorTestKit.create(ConfigFactory.load());
+
+    private final PrintDispatcherSerializer serializer =
+            new PrintDispatcherSerializer((ExtendedActorSystem) Adapter.toClassic(testKit.system()));
+
+    @AfterEach
+    public void tearDown() {
+        testKit.shutdownTestKit();
+    }
+
+    @Test
+    public void testRegisteredForCommandsAndReplies() {
+        // Setup
+        var serialization = SerializationExtension.get(Adapter.toClassic(testKit.system()));
+
+        // When
+        var forCommand = serialization.findSerializerFor(new PrintDispatcherImpl.CancelCurrentPrint());
+        var forReply = serialization.findSerializerFor(PrintStatistics.EMPTY);
+
+        // Then
+        assertTrue(forCommand instanceof PrintDispatcherSerializer);
+        assertTrue(forReply instanceof PrintDispatcherSerializer);
+    }
+
+    @Test
+    public void testRoundTrip() throws NotSerializableException {
+        // Setup
+        var admissions = testKit.<PrintDispatcherImpl.Admission>createTestProbe().getRef();
+        var results = testKit.<PrintResult>createTestProbe().getRef();
+        var pages = testKit.<PrintDispatcherImpl.PrintedDocuments>createTestProbe().getRef();
+        var poster = new StoredDocument("poster", ISOPaperSizes.A1, Duration.ofMinutes(3), 2);
+        var label = new StoredDocument("\u044d\u0442\u0438\u043a\u0435\u0442\u043a\u0430", new StoredDocument.Size(62, 29), Duration.ofMillis(150), 0);
+        var stats = new PrintStatistics(3, Duration.ofSeconds(6), Duration.ofSeconds(1), Duration.ofSeconds(3),
+                Duration.ofSeconds(2), Duration.ofSeconds(2), Duration.ofSeconds(3), Duration.ofSeconds(3));
+
+        // When
+        var messages = List.of(
+                new PrintDispatcherImpl.AddToPrint(42, poster, admissions, results),
+                new PrintDispatcherImpl.AddToPrint(PrintDispatcherImpl.NO_ID, label, null, null),
+                new PrintDispatcherImpl.AddAllToPrint(43, List.of(poster, label), admissions),
+                new PrintDispatcherImpl.GetPrintedPage(pages, PrintedOrder.PRINT_DURATION, 10, 20),
+                new PrintDispatcherImpl.StopPrinter(1, testKit.<PrintDispatcherImpl.NotPrintedDocuments>createTestProbe().getRef()),
+                new PrintResult(label, PrintResult.Status.CANCELLED),
+                new PrintDispatcherImpl.Admission(PrintDispatcherImpl.Verdict.UNSUPPORTED_PAPER_SIZE, Long.MIN_VALUE + 5),
+                new PrintDispatcherImpl.CancelAllQueued(testKit.<PrintDispatcherImpl.Cancelled>createTestProbe().getRef()),
+                new PrintDispatcherImpl.Cancelled(3),
+                new ExecutorStatistics("farm-north", 4, 2, 3, 120, Duration.ofMillis(2), Duration.ofMillis(40)),
+                new PrintDispatcherImpl.PrinterStats(List.of(
+                        new PrinterStatistics(0, stats, Duration.ofMillis(5), 1.25),
+                        new PrinterStatistics(1, PrintStatistics.EMPTY, Duration.ZERO, 0))),
+                new PrintDispatcherImpl.AddToCompleteDocument(7, -42),
+                new PrintDispatcherImpl.JobEstimates(List.of(
+                        new JobEstimate(poster, 1, Duration.ofMinutes(4), Duration.ofMinutes(9)))),
+                stats);
+
+        // Then
+        for (Object message : messages) {
+            assertEquals(message, roundTrip(message));
+        }
+        var ids = new PrintDispatcherImpl.AddAllToQueueDocuments(new long[]{Long.MIN_VALUE, 0, 42}, 1234567890L);
+        var decoded = (PrintDispatcherImpl.AddAllToQueueDocuments) roundTrip(ids);
+        assertArrayEquals(ids.getIds(), decoded.getIds());
+        assertEquals(ids.getQueuedAt(), decoded.getQueuedAt());
+        var cancel = new PrintDispatcherImpl.CancelJobs(new long[]{Long.MIN_VALUE, 7}, null);
+        assertArrayEquals(cancel.getIds(), ((PrintDispatcherImpl.CancelJobs) roundTrip(cancel)).getIds());
+    }
+
+    @Test
+    public void testCustomComparatorIsNotSerializable() {
+        // Setup
+        var query = new PrintDispatcherImpl.GetPrintedList(
+                testKit.<PrintDispatcherImpl.PrintedDocuments>createTestProbe().getRef(),
+                Comparator.comparing(Printable::name),
+                0,
+                10);
+
+        // When-Then
+        assertThrows(IllegalArgumentException.class, () -> serializer.toBinary(query));
+    }
+
+    private Object roundTrip(Object message) throws NotSerializableException {
+        return serializer.fromBinary(serializer.toBinary(message), serializer.manifest(message));
+    }
+}
@@ -0,0 +1,48 @@
+package ru.sherb.actors;
+
+import org.junit.jupiter.api.Test;
+import ru.sherb.printer.ISOPaperSizes;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrintTimeEstimatorTest {
+
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    public void testFollowObservedTimeOfPaperSize() {
+        // Setup
+        var estimator = new PrintTimeEstimator();
+        var a4 = new MockDocument().name("a4").printDuration(Duration.ofSeconds(1));
+        var a3 = new MockDocument().name("a3").paperSize(ISOPaperSizes.A3).printDuration(Duration.ofSeconds(2));
+
+        // When, the printer slows down from 2 to 4 seconds for A4
+        estimator.record(a4, 2 * SECOND);
+        long first = estimator.estimateNanos(a4);
+        for (int i = 0; i < 30; i++) {
+            estimator.record(a4, 4 * SECOND);
+        }
+
+        // Then
+        assertEquals(2 * SECOND, first);
+        long converged = estimator.estimateNanos(a4);
+        assertTrue(converged > 3.99 * SECOND && converged <= 4 * SECOND, () -> "estimate is " + converged);
+        assertTrue(estimator.estimateNanos(a3) > 2 * SECOND, "unseen sizes are corrected by the printer ratio");
+    }
+
+    @Test
+    public void testDeclaredDurationBeforeFirstPrint() {
+        // Setup
+        var estimator = new PrintTimeEstimator();
+        var document = new MockDocument().name("a4").printDuration(Duration.ofMillis(1500));
+
+        // When
+        long estimate = estimator.estimateNanos(document);
+
+        // Then
+        assertEquals(Duration.ofMillis(1500).toNanos(), estimate);
+    }
+}
@@ -0,0 +1,59 @@
+package ru.sherb.actors;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RankedSetTest {
+
+    @Test
+    public void testPagesMatchSortedSetAfterAddsAndRemoves() {
+        // Setup
+        var ranked = new RankedSet<Integer>(Comparator.naturalOrder());
+        var sorted = new TreeSet<Integer>();
+        var random = new Random(42);
+
+        // When
+        for (int i = 0; i < 5_000; i++) {
+            int value = random.nextInt(2_000);
+            if (sorted.add(value)) {
+                ranked.add(value);
+            } else {
+                sorted.remove(value);
+                ranked.remove(value);
+            }
+        }
+
+        // Then
+        var expected = new ArrayList<>(sorted);
+        assertEquals(expected.size(), ranked.size());
+        for (int from = 0; from <= expected.size(); from += 37) {
+            var page = new ArrayList<Integer>();
+            ranked.forEachFrom(from, 50, page::add);
+            assertEquals(expected.subList(from, Math.min(from + 50, expected.size())), page);
+        }
+    }
+
+    @Test
+    public void testPageBeyondTheEndIsEmpty() {
+        // Setup
+        var ranked = new RankedSet<String>(Comparator.naturalOrder());
+        List.of("b", "a", "c").forEach(ranked::add);
+
+        // When
+        var tail = new ArrayList<String>();
+        ranked.forEachFrom(2, 10, tail::add);
+        var beyond = new ArrayList<String>();
+        ranked.forEachFrom(3, 10, beyond::add);
+
+        // Then
+        assertEquals(List.of("c"), tail);
+        assertEquals(List.of(), beyond);
+    }
+}
@@ -0,0 +1,192 @@
+package ru.sherb.actors;
+
+import org.junit.jupiter.api.Test;
+import ru.sherb.printer.ISOPaperSizes;
+import ru.sherb.printer.Printable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchedulingPolicyTest {
+
+    @Test
+    public void testFifo() {
+        // Setup
+        var queue = SchedulingPolicy.fifo().newQueue();
+        var poster = new MockDocument().name("poster").printDuration(Duration.ofMinutes(20));
+        var receipt = new MockDocument().name("receipt").printDuration(Duration.ofSeconds(1));
+
+        // When
+        queue.add(queued(0, poster, 0));
+        queue.add(queued(1, receipt, 0));
+
+        // Then
+        assertEquals(List.of(poster, receipt), drain(queue));
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testShortestJobFirst() {
+        // Setup
+        var queue = SchedulingPolicy.shortestJobFirst().newQueue();
+        var poster = new MockDocument().name("poster").printDuration(Duration.ofMinutes(20));
+        var first = new MockDocument().name("first").printDuration(Duration.ofSeconds(1));
+        var second = new MockDocument().name("second").printDuration(Duration.ofSeconds(1));
+
+        // When
+        queue.add(queued(0, poster, 0));
+        queue.add(queued(1, first, 0));
+        queue.add(queued(2, second, 0));
+
+        // Then
+        assertEquals(List.of(first, second, poster), drain(queue));
+    }
+
+    @Test
+    public void testShortestEstimatedJobFirst() {
+        // Setup, the poster declares less than it takes and the receipt more
+        var queue = SchedulingPolicy.shortestEstimatedJobFirst().newQueue();
+        var poster = new MockDocument().name("poster").printDuration(Duration.ofSeconds(1));
+        var receipt = new MockDocument().name("receipt").printDuration(Duration.ofMinutes(1));
+        var label = new MockDocument().name("label").printDuration(Duration.ofMinutes(1));
+
+        // When
+        queue.add(new QueuedDocument(null, 0, poster, 0, Duration.ofMinutes(20).toNanos()));
+        queue.add(new QueuedDocument(null, 1, receipt, 0, Duration.ofSeconds(2).toNanos()));
+        queue.add(new QueuedDocument(null, 2, label, 0, Duration.ofSeconds(2).toNanos()));
+
+        // Then
+        assertEquals(List.of(receipt, label, poster), drain(queue));
+    }
+
+    @Test
+    public void testPriorityWithAging() {
+        // Setup
+        var aging = Duration.ofSeconds(10);
+        var queue = SchedulingPolicy.priorityWithAging(aging).newQueue();
+        var old = new MockDocument().name("old").priority(0);
+        var urgent = new MockDocument().name("urgent").priority(2);
+        var fresh = new MockDocument().name("fresh").priority(2);
+
+        // When, effective priorities at 30s
+        queue.add(queued(0, old, 0));                                  // 0 + 3
+        queue.add(queued(1, urgent, aging.toNanos() * 5 / 2));         // 2 + 0.5
+        queue.add(queued(2, fresh, aging.toNanos() * 3));              // 2 + 0
+
+        // Then
+        assertEquals(List.of(old, urgent, fresh), drain(queue));
+    }
+
+    @Test
+    public void testPriorityWithAgingTellsApartShortWaits() {
+        // Setup, a clock far from zero, where a nanosecond is lost in a double of the aged priority
+        var queue = SchedulingPolicy.priorityWithAging(Duration.ofSeconds(1)).newQueue();
+        var later = new MockDocument().name("later");
+        var earlier = new MockDocument().name("earlier");
+        long now = Long.MAX_VALUE / 2;
+
+        // When, the earlier document got the greater id from another producer
+        queue.add(queued(0, later, now + 1));
+        queue.add(queued(1, earlier, now));
+
+        // Then
+        assertEquals(List.of(earlier, later), drain(queue));
+    }
+
+    @Test
+    public void testPriorityWithAgingSaturatesOverflow() {
+        // Setup
+        var queue = SchedulingPolicy.priorityWithAging(Duration.ofDays(365 * 200)).newQueue();
+        var lowest = new MockDocument().name("lowest").priority(Integer.MIN_VALUE);
+        var highest = new MockDocument().name("highest").priority(Integer.MAX_VALUE);
+
+        // When, the lowest waited for over a century, but the priority gap is bigger
+        queue.add(queued(0, lowest, 0));
+        queue.add(queued(1, highest, Long.MAX_VALUE / 2));
+
+        // Then
+        assertEquals(List.of(highest, lowest), drain(queue));
+    }
+
+    @Test
+    public void testGroupByPaperSize() {
+        // Setup
+        var queue = SchedulingPolicy.groupByPaperSize(2).newQueue();
+        var a4first = new MockDocument().name("a4-1");
+        var a3first = new MockDocument().name("a3-1").paperSize(ISOPaperSizes.A3);
+        var a4second = new MockDocument().name("a4-2");
+        var a4third = new MockDocument().name("a4-3");
+        var a3second = new MockDocument().name("a3-2").paperSize(ISOPaperSizes.A3);
+
+        // When
+        queue.add(queued(0, a4first, 0));
+        queue.add(queued(1, a3first, 0));
+        queue.add(queued(2, a4second, 0));
+        queue.add(queued(3, a4third, 0));
+        queue.add(queued(4, a3second, 0));
+
+        // Then, a run of A4 is cut after two documents because A3 is waiting
+        assertEquals(List.of(a4first, a4second, a3first, a3second, a4third), drain(queue));
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testGroupByPaperSizeStartsWithLongestWaiting() {
+        // Setup
+        var queue = SchedulingPolicy.groupByPaperSize(1).newQueue();
+        var a3 = new MockDocument().name("a3").paperSize(ISOPaperSizes.A3);
+        var a4 = new MockDocument().name("a4");
+
+        // When, the A4 document waits longer, but its id came from another producer and is greater
+        queue.add(queued(1, a3, 10));
+        queue.add(queued(5, a4, 0));
+
+        // Then
+        assertEquals(List.of(a4, a3), drain(queue));
+    }
+
+    @Test
+    public void testRemoveById() {
+        var policies = List.of(
+                SchedulingPolicy.fifo(),
+                SchedulingPolicy.shortestJobFirst(),
+                SchedulingPolicy.priorityWithAging(Duration.ofSeconds(1)),
+                SchedulingPolicy.groupByPaperSize(1));
+        for (SchedulingPolicy policy : policies) {
+            // Setup
+            var queue = policy.newQueue();
+            var documents = new ArrayList<Printable>();
+            for (int i = 0; i < 5; i++) {
+                documents.add(new MockDocument().name(String.valueOf(i)));
+                queue.add(queued(i, documents.get(i), 0));
+            }
+
+            // When
+            boolean removed = queue.remove(1) & queue.remove(3);
+
+            // Then
+            assertTrue(removed);
+            assertFalse(queue.remove(3));
+            assertEquals(3, queue.size());
+            assertEquals(List.of(documents.get(0), documents.get(2), documents.get(4)), drain(queue));
+        }
+    }
+
+    private static QueuedDocument queued(long id, Printable document, long enqueuedAt) {
+        return new QueuedDocument(null, id, document, enqueuedAt);
+    }
+
+    private static List<Printable> drain(PrintQueue queue) {
+        var result = new ArrayList<Printable>();
+        while (!queue.isEmpty()) {
+            result.add(queue.poll().document());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,102 @@
+package ru.sherb.actors;
+
+import akka.actor.typed.ActorSystem;
+import akka.actor.typed.javadsl.Behaviors;
+import akka.cluster.MemberStatus;
+import akka.cluster.typed.Cluster;
+import akka.cluster.typed.Join;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.junit.jupiter.api.Test;
+import ru.sherb.printer.PrintedOrder;
+import ru.sherb.printer.Printable;
+import ru.sherb.printer.Printer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedPrintDispatcherTest {
+
+    private static final Config CLUSTER_CONFIG = ConfigFactory.parseString(
+            "akka.actor.provider = cluster\n" +
+            "akka.remote.artery.canonical.hostname = 127.0.0.1\n" +
+            "akka.remote.artery.canonical.port = 0\n" +
+            "akka.cluster.jmx.multi-mbeans-in-same-jvm = on\n")
+            .withFallback(ConfigFactory.load());
+
+    private static final class RecordingPrinter implements Printer {
+        final BlockingQueue<String> printed = new LinkedBlockingQueue<>();
+
+        @Override
+        public void print(Printable document) {
+            printed.add(document.name());
+        }
+
+        @Override
+        public void stop() { }
+    }
+
+    @Test
+    public void testPrintThroughAnotherNode() throws InterruptedException {
+        // Setup
+        var first = ActorSystem.create(Behaviors.empty(), "farm", CLUSTER_CONFIG);
+        var second = ActorSystem.create(Behaviors.empty(), "farm", CLUSTER_CONFIG);
+        var seed = Cluster.get(first).selfMember().address();
+        Cluster.get(first).manager().tell(Join.create(seed));
+        Cluster.get(second).manager().tell(Join.create(seed));
+        awaitUp(first);
+        awaitUp(second);
+
+        var printers = Map.of("north", new RecordingPrinter(), "south", new RecordingPrinter());
+        var settings = PrintDispatcherSettings.defaults().withAskTimeout(Duration.ofSeconds(5));
+        var farmOfFirst = ShardedPrintDispatcher.init(first, group -> List.of(printers.get(group)), settings);
+        var farmOfSecond = ShardedPrintDispatcher.init(second, group -> List.of(printers.get(group)), settings);
+
+        // When, every group is added from the second node and read from the first one,
+        // at least one of them crosses the nodes
+        for (String group : printers.keySet()) {
+            var facade = farmOfSecond.facade(group);
+            facade.addToPrint(new MockDocument().name(group + " 1"));
+            facade.addToPrint(new MockDocument().name(group + " 2"));
+        }
+
+        // Then
+        for (String group : printers.keySet()) {
+            var printed = printers.get(group).printed;
+            assertEquals(group + " 1", printed.poll(10, TimeUnit.SECONDS));
+            assertEquals(group + " 2", printed.poll(10, TimeUnit.SECONDS));
+
+            var facade = farmOfFirst.facade(group);
+            facade.async().allComplete(Duration.ofSeconds(10)).toCompletableFuture().join();
+            var names = facade
+                    .listPrinted(PrintedOrder.COMPLETION_TIME, 0, 10)
+                    .stream()
+                    .map(Printable::name)
+                    .collect(Collectors.toList());
+            assertEquals(List.of(group + " 1", group + " 2"), names);
+        }
+
+        // Cleanup
+        second.terminate();
+        second.getWhenTerminated().toCompletableFuture().join();
+        first.terminate();
+        first.getWhenTerminated().toCompletableFuture().join();
+    }
+
+    private static void awaitUp(ActorSystem<?> system) throws InterruptedException {
+        var cluster = Cluster.get(system);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (cluster.selfMember().status() != MemberStatus.up()) {
+            assertTrue(System.nanoTime() < deadline, "the node has not joined the cluster");
+            Thread.sleep(50);
+        }
+    }
+}